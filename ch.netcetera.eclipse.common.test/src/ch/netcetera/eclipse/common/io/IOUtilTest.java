@@ -12,11 +12,20 @@
  */
 package ch.netcetera.eclipse.common.io;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
 /**
  * Tests for {@link IOUtil}.
  */
@@ -59,4 +68,101 @@ public class IOUtilTest {
     };
     IOUtil.closeSilently(closeable);
   }
+
+  /**
+   * Tests {@link IOUtil#openFileInputStream(File)} with a file below the mapping threshold.
+   *
+   * @throws IOException on error
+   */
+  @Test
+  public void testOpenFileInputStreamSmallFile() throws IOException {
+    assertFileRead(createData(100));
+  }
+
+  /**
+   * Tests {@link IOUtil#openFileInputStream(File)} with a file that is mapped into memory.
+   *
+   * @throws IOException on error
+   */
+  @Test
+  public void testOpenFileInputStreamMappedFile() throws IOException {
+    byte[] data = createData((int) IOUtil.MAPPED_READ_THRESHOLD + 1);
+    File file = createFile(data);
+    try {
+      InputStream input = IOUtil.openFileInputStream(file);
+      try {
+        assertTrue(input instanceof ByteBufferInputStream);
+        assertArrayEquals(data, readFully(input));
+      } finally {
+        input.close();
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Tests {@link IOUtil#copyFile(File, File)}.
+   *
+   * @throws IOException on error
+   */
+  @Test
+  public void testCopyFile() throws IOException {
+    byte[] data = createData((int) IOUtil.MAPPED_READ_THRESHOLD * 3);
+    File source = createFile(data);
+    File target = createFile(new byte[] {1, 2, 3});
+    try {
+      IOUtil.copyFile(source, target);
+      InputStream input = IOUtil.openFileInputStream(target);
+      try {
+        assertArrayEquals(data, readFully(input));
+      } finally {
+        input.close();
+      }
+    } finally {
+      source.delete();
+      target.delete();
+    }
+  }
+
+  private static void assertFileRead(byte[] data) throws IOException {
+    File file = createFile(data);
+    try {
+      InputStream input = IOUtil.openFileInputStream(file);
+      try {
+        assertArrayEquals(data, readFully(input));
+      } finally {
+        input.close();
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  private static byte[] createData(int size) {
+    byte[] data = new byte[size];
+    new Random(size).nextBytes(data);
+    return data;
+  }
+
+  private static File createFile(byte[] data) throws IOException {
+    File file = File.createTempFile("ioutil", ".bin");
+    OutputStream output = new FileOutputStream(file);
+    try {
+      output.write(data);
+    } finally {
+      output.close();
+    }
+    return file;
+  }
+
+  private static byte[] readFully(InputStream input) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1000];
+    int read;
+    while ((read = input.read(buffer)) != -1) { // NOPMD assignment in operand is ok
+      output.write(buffer, 0, read);
+    }
+    return output.toByteArray();
+  }
 }
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2014 the Eclipsed Team Etceteras Project and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Eclipse Team Etceteras - http://netceteragroup.github.io/eclipse-team-etceteras/updatesite/
+ */
+package ch.netcetera.eclipse.common.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link HttpResponseCache}.
+ */
+public class HttpResponseCacheTest {
+
+  private static final String URL = "http://example.com/settings.epf";
+
+  private File directory;
+  private HttpResponseCache cache;
+
+  /**
+   * Creates an empty cache directory.
+   *
+   * @throws IOException on error
+   */
+  @Before
+  public void setUp() throws IOException {
+    this.directory = File.createTempFile("http-cache", "");
+    this.directory.delete();
+    this.cache = new HttpResponseCache(this.directory);
+  }
+
+  /**
+   * Removes the cache directory.
+   */
+  @After
+  public void tearDown() {
+    File[] files = this.directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    this.directory.delete();
+  }
+
+  /**
+   * Tests that a completely read response is cached with its validators.
+   *
+   * @throws IOException on error
+   */
+  @Test
+  public void cacheCompletelyReadResponse() throws IOException {
+    HttpResponse response = createResponse("content");
+    this.cache.wrap(URL, response);
+    assertEquals("content", EntityUtils.toString(response.getEntity()));
+
+    HttpResponseCache.Entry entry = this.cache.get(URL);
+    assertNotNull(entry);
+    assertEquals("\"v1\"", entry.getEntityTag());
+    assertEquals("Tue, 15 Nov 1994 12:45:26 GMT", entry.getLastModified());
+    assertEquals("content", EntityUtils.toString(entry.toResponse().getEntity()));
+  }
+
+  /**
+   * Tests that a response whose stream is closed early is still cached completely.
+   *
+   * @throws IOException on error
+   */
+  @Test
+  public void cacheEarlyClosedResponse() throws IOException {
+    HttpResponse response = createResponse("content");
+    this.cache.wrap(URL, response);
+    InputStream input = response.getEntity().getContent();
+    input.read();
+    input.close();
+
+    HttpResponseCache.Entry entry = this.cache.get(URL);
+    assertNotNull(entry);
+    assertEquals("content", EntityUtils.toString(entry.toResponse().getEntity()));
+  }
+
+  /**
+   * Tests that a newer response replaces the cached one.
+   *
+   * @throws IOException on error
+   */
+  @Test
+  public void replaceCachedResponse() throws IOException {
+    HttpResponse first = createResponse("first");
+    EntityUtils.toString(this.cache.wrap(URL, first).getEntity());
+    HttpResponse second = createResponse("second");
+    second.setHeader("ETag", "\"v2\"");
+    EntityUtils.toString(this.cache.wrap(URL, second).getEntity());
+
+    HttpResponseCache.Entry entry = this.cache.get(URL);
+    assertEquals("\"v2\"", entry.getEntityTag());
+    assertEquals("second", EntityUtils.toString(entry.toResponse().getEntity()));
+  }
+
+  /**
+   * Tests that the body of a replaced response can still be read by a reader that holds its entry.
+   *
+   * @throws IOException on error
+   */
+  @Test
+  public void readReplacedResponse() throws IOException {
+    EntityUtils.toString(this.cache.wrap(URL, createResponse("first")).getEntity());
+    HttpResponseCache.Entry first = this.cache.get(URL);
+    HttpResponse second = createResponse("second");
+    second.setHeader("ETag", "\"v2\"");
+    EntityUtils.toString(this.cache.wrap(URL, second).getEntity());
+
+    assertEquals("first", EntityUtils.toString(first.toResponse().getEntity()));
+    assertEquals("second", EntityUtils.toString(this.cache.get(URL).toResponse().getEntity()));
+  }
+
+  /**
+   * Tests that the responses accessed least recently are evicted when there are too many.
+   *
+   * @throws IOException on error
+   */
+  @Test
+  public void evictLeastRecentlyAccessed() throws IOException {
+    HttpResponseCache boundedCache = new HttpResponseCache(this.directory, 2, 0L, false);
+    String otherUrl = "http://example.com/other.epf";
+    String thirdUrl = "http://example.com/third.epf";
+    EntityUtils.toString(boundedCache.wrap(URL, createResponse("first")).getEntity());
+    EntityUtils.toString(boundedCache.wrap(otherUrl, createResponse("other")).getEntity());
+    long now = System.currentTimeMillis();
+    assertTrue(getPropertiesFile(URL).setLastModified(now - 20000L));
+    assertTrue(getPropertiesFile(otherUrl).setLastModified(now - 10000L));
+
+    // the access makes the other URL the one accessed least recently
+    assertNotNull(boundedCache.get(URL));
+    EntityUtils.toString(boundedCache.wrap(thirdUrl, createResponse("third")).getEntity());
+
+    assertNotNull(boundedCache.get(URL));
+    assertNull(boundedCache.get(otherUrl));
+    assertEquals("third", EntityUtils.toString(boundedCache.get(thirdUrl).toResponse().getEntity()));
+  }
+
+  /**
+   * Tests that a mirror stores responses without validators, which other caches do not accept.
+   *
+   * @throws IOException on error
+   */
+  @Test
+  public void mirrorResponseWithoutValidators() throws IOException {
+    HttpResponse response = createResponse("content");
+    response.removeHeaders("ETag");
+    response.removeHeaders("Last-Modified");
+    assertFalse(this.cache.accepts(response));
+    HttpResponseCache mirror = HttpResponseCache.createMirror(this.directory);
+    assertTrue(mirror.accepts(response));
+
+    EntityUtils.toString(mirror.wrap(URL, response).getEntity());
+
+    HttpResponseCache.Entry entry = mirror.get(URL);
+    assertNull(entry.getEntityTag());
+    assertNull(entry.getLastModified());
+    assertEquals("content", EntityUtils.toString(entry.toResponse().getEntity()));
+  }
+
+  /**
+   * Tests that a mirror keeps all entries, however many there are.
+   *
+   * @throws IOException on error
+   */
+  @Test
+  public void mirrorDoesNotEvict() throws IOException {
+    HttpResponseCache mirror = HttpResponseCache.createMirror(this.directory);
+    for (int i = 0; i < 150; i++) {
+      EntityUtils.toString(mirror.wrap(URL + i, createResponse("content" + i)).getEntity());
+    }
+
+    for (int i = 0; i < 150; i++) {
+      assertEquals("content" + i, EntityUtils.toString(mirror.get(URL + i).toResponse().getEntity()));
+    }
+  }
+
+  private File getPropertiesFile(String url) {
+    return new File(this.directory, DigestUtils.shaHex(url) + ".properties");
+  }
+
+  /**
+   * Tests that nothing is returned for URLs that were never cached.
+   */
+  @Test
+  public void getUnknownUrl() {
+    assertNull(this.cache.get(URL));
+  }
+
+  private static HttpResponse createResponse(String body) throws IOException {
+    HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+    response.setHeader("ETag", "\"v1\"");
+    response.setHeader("Last-Modified", "Tue, 15 Nov 1994 12:45:26 GMT");
+    response.setEntity(new StringEntity(body));
+    return response;
+  }
+}
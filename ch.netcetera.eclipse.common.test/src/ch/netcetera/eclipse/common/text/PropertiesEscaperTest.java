@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.common.text;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link PropertiesEscaper}.
+ */
+public class PropertiesEscaperTest {
+
+  /**
+   * Tests that a value with a backslash, an equals sign and a line break is escaped.
+   */
+  @Test
+  public void testEscapeValue() {
+    assertEquals("C\\:\\\\temp\\\\a\\=b\\nnext", PropertiesEscaper.escapeValue("C:\\temp\\a=b\nnext"));
+  }
+
+  /**
+   * Tests that spaces are escaped everywhere in a key but only at the start of a value.
+   */
+  @Test
+  public void testEscapeSpaces() {
+    assertEquals("a\\ key", PropertiesEscaper.escapeKey("a key"));
+    assertEquals("\\ a value", PropertiesEscaper.escapeValue(" a value"));
+  }
+
+  /**
+   * Tests that escaped keys and values are read back unchanged by {@link Properties#load}.
+   *
+   * @throws IOException on failure
+   */
+  @Test
+  public void testRoundTrip() throws IOException {
+    String key = "/instance/org.eclipse.ui/a key=with:specials";
+    String value = " C:\\temp\\a=b\nnext\r\t#!\u00e9\u20ac";
+    Properties properties = new Properties();
+    properties.load(new StringReader(PropertiesEscaper.escapeKey(key) + "="
+        + PropertiesEscaper.escapeValue(value) + "\n"));
+    assertEquals(1, properties.size());
+    assertEquals(value, properties.getProperty(key));
+  }
+}
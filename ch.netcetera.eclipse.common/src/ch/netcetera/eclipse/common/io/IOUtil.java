@@ -13,13 +13,22 @@
 package ch.netcetera.eclipse.common.io;
 
 import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 
 /**
  * Utility class to handle some common IO tasks.
  */
 public final class IOUtil {
 
+  /** Files of at least this size are read through a memory mapping. */
+  static final long MAPPED_READ_THRESHOLD = 256 * 1024;
+
   /**
    * Private default constructor.
    */
@@ -42,4 +51,66 @@ public final class IOUtil {
       }
     }
   }
+
+  /**
+   * Opens a file for reading. Files of at least 256 KB are mapped into memory and read without
+   * copying them through a heap buffer, smaller files are read through a {@link FileInputStream}.
+   *
+   * <p>
+   * Note that a mapped file stays mapped until the stream has been garbage collected, on Windows the
+   * file cannot be deleted until then.
+   * </p>
+   *
+   * @param file the file to read
+   * @return the stream to read the file from, the caller must close it
+   * @throws IOException if the file cannot be opened
+   */
+  public static InputStream openFileInputStream(File file) throws IOException {
+    long length = file.length();
+    if (length < MAPPED_READ_THRESHOLD || length > Integer.MAX_VALUE) {
+      return new FileInputStream(file);
+    }
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      // the mapping stays valid after the channel has been closed
+      FileChannel channel = randomAccessFile.getChannel();
+      return new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    } finally {
+      closeSilently(randomAccessFile);
+    }
+  }
+
+  /**
+   * Copies a file. The bytes are transferred between the file channels, which lets the operating
+   * system copy them without staging them in the Java heap.
+   *
+   * @param source the file to copy
+   * @param target the file to copy to, it is overwritten if it exists
+   * @throws IOException if the file cannot be copied
+   */
+  public static void copyFile(File source, File target) throws IOException {
+    FileInputStream input = new FileInputStream(source);
+    try {
+      FileOutputStream output = new FileOutputStream(target);
+      try {
+        FileChannel inputChannel = input.getChannel();
+        FileChannel outputChannel = output.getChannel();
+        long size = inputChannel.size();
+        long position = 0;
+        while (position < size) {
+          // transferTo may transfer less than requested
+          long transferred = inputChannel.transferTo(position, size - position, outputChannel);
+          if (transferred <= 0) {
+            // the file has been truncated in the meantime
+            break;
+          }
+          position += transferred;
+        }
+      } finally {
+        output.close();
+      }
+    } finally {
+      closeSilently(input);
+    }
+  }
 }
@@ -12,10 +12,12 @@
  */
 package ch.netcetera.eclipse.common.net;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.http.Header;
@@ -24,18 +26,29 @@ import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.conn.params.ConnRoutePNames;
 import org.apache.http.conn.scheme.PlainSocketFactory;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeRegistry;
 import org.apache.http.conn.ssl.SSLSocketFactory;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.util.EntityUtils;
 import org.eclipse.core.net.proxy.IProxyData;
 import org.eclipse.core.net.proxy.IProxyService;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
+
+import ch.netcetera.eclipse.common.io.IOUtil;
 
 /**
  * Base HTTP client for the different ETE subprojects.
@@ -45,6 +58,18 @@ public abstract class AbstractHttpClient {
   /** The default buffer size for stream operations. */
   protected static final int DEFAULT_BUFFER_SIZE = 1024 * 8;
 
+  private static final int MAX_TOTAL_CONNECTIONS = 20;
+  private static final int MAX_CONNECTIONS_PER_ROUTE = 4;
+  private static final long IDLE_CONNECTION_TIMEOUT_SECONDS = 30;
+  private static final int CONNECTION_TIMEOUT_MILLIS = 30 * 1000;
+  private static final int SOCKET_TIMEOUT_MILLIS = 60 * 1000;
+
+  private static final String RESPONSE_CACHE_DIRECTORY = "http-cache";
+
+  private final Object httpClientLock = new Object();
+  private volatile DefaultHttpClient httpClient;
+  private volatile HttpResponseCache responseCache;
+
   /**
    * Call-back interface for handling HTTP responses.
    *
@@ -173,6 +198,18 @@ public abstract class AbstractHttpClient {
   /**
    * Executes a HTTP get request.
    *
+   * <p>
+   * The request is executed with the pooled client of this instance, see {@link #getHttpClient()}.
+   * The response handler is expected to consume the response stream completely and to close it,
+   * this hands the connection back to the pool so that it can be reused for the next request.
+   * </p>
+   *
+   * <p>
+   * If there is a {@link #getResponseCache() response cache} the request is sent as a conditional
+   * request. When the server answers with <code>304 Not Modified</code> the handler is passed the
+   * cached response instead.
+   * </p>
+   *
    * @param <R> the return type
    * @param url the url
    * @param handler the response handler
@@ -183,27 +220,234 @@ public abstract class AbstractHttpClient {
   protected <R> R executeGetRequest(String url,
       IResponseHandler<R> handler,
       IProgressMonitor monitor) throws CoreException {
+    return executeGetRequest(url, new HttpGet(url), handler, monitor);
+  }
 
-    HttpClient client = new DefaultHttpClient();
-    HttpGet get = new HttpGet(url);
+  private <R> R executeGetRequest(String url, HttpGet get, IResponseHandler<R> handler, IProgressMonitor monitor)
+      throws CoreException {
+    HttpClient client = getHttpClient();
+    evictStaleConnections(client);
     get.addHeader("Accept-Encoding", "gzip");
-    configureProxySettings(client, get);
-    configureSslHandling(client);
+    configureProxySettings(get);
+
+    HttpResponseCache cache = getResponseCache();
+    HttpResponseCache.Entry cached = cache != null ? cache.get(url) : null;
+    if (cached != null) {
+      addValidators(get, cached);
+    }
 
     try {
       HttpResponse response = client.execute(get);
       int statusCode = response.getStatusLine().getStatusCode();
       if (statusCode == HttpStatus.SC_OK) {
+        if (cache != null && cache.accepts(response)) {
+          response = cache.wrap(url, response);
+        }
         return handler.handleResponse(response, monitor);
+      } else if (statusCode == HttpStatus.SC_NOT_MODIFIED && cached != null) {
+        EntityUtils.consume(response.getEntity());
+        return handler.handleResponse(cached.toResponse(), monitor);
       } else {
+        EntityUtils.consume(response.getEntity());
         throw convertHttpStatusToException(statusCode, get.getURI());
       }
     } catch (IOException e) {
+      get.abort();
       throw wrapIoException(e);
+    } catch (RuntimeException e) {
+      get.abort();
+      throw e;
+    }
+  }
+
+  /**
+   * Executes a HTTP get request and returns the response body as a stream, the body is not read
+   * into memory. The stream is decompressed and reports progress just like the streams passed to
+   * response handlers.
+   *
+   * <p>
+   * The caller owns the stream returned and must close it. Until it is closed the connection stays
+   * checked out of the pool. Closing it before the end of the body aborts the request.
+   * </p>
+   *
+   * @param url the url
+   * @param monitor the progress monitor
+   * @return the response body, never {@code null}
+   * @throws CoreException on error
+   */
+  protected HttpResponseStream executeStreamingGetRequest(String url, IProgressMonitor monitor)
+      throws CoreException {
+    final HttpGet get = new HttpGet(url);
+    return executeGetRequest(url, get, new IResponseHandler<HttpResponseStream>() {
+
+      /** {@inheritDoc} */
+      @Override
+      public HttpResponseStream handleResponse(HttpResponse response, IProgressMonitor responseMonitor)
+          throws IOException {
+        InputStream input = response.getEntity().getContent();
+        try {
+          Header entityTag = response.getFirstHeader("ETag");
+          return new HttpResponseStream(wrapResponseStream(response, input, responseMonitor),
+              entityTag != null ? entityTag.getValue() : null, get);
+        } catch (IOException e) {
+          IOUtil.closeSilently(input);
+          throw e;
+        }
+      }
+    }, monitor);
+  }
+
+  /**
+   * Opens a stream on the cached body of the last successful response to a HTTP get request for the
+   * url passed. The server is not contacted, so this works offline too.
+   *
+   * <p>
+   * The caller owns the stream returned and must close it.
+   * </p>
+   *
+   * @param url the url
+   * @return the cached response body or {@code null} if there is no cached response
+   */
+  protected HttpResponseStream openCachedResponseStream(String url) {
+    HttpResponseCache cache = getResponseCache();
+    HttpResponseCache.Entry cached = cache != null ? cache.get(url) : null;
+    if (cached == null) {
+      return null;
+    }
+    HttpResponse response = cached.toResponse();
+    InputStream input = null;
+    try {
+      input = response.getEntity().getContent();
+      return new HttpResponseStream(wrapResponseStream(response, input, new NullProgressMonitor()),
+          cached.getEntityTag());
+    } catch (IOException e) {
+      // the cached body has been replaced in the meantime
+      IOUtil.closeSilently(input);
+      return null;
+    }
+  }
+
+  private static void addValidators(HttpGet get, HttpResponseCache.Entry cached) {
+    if (cached.getEntityTag() != null) {
+      get.addHeader("If-None-Match", cached.getEntityTag());
+    }
+    if (cached.getLastModified() != null) {
+      get.addHeader("If-Modified-Since", cached.getLastModified());
+    }
+  }
+
+  /**
+   * Gets the cache for the responses of this client. The cache lives in the state location of the
+   * client's bundle, i.e. in the metadata area of the workspace.
+   *
+   * @return the response cache or {@code null} if there is no workspace to keep it in
+   */
+  protected HttpResponseCache getResponseCache() {
+    HttpResponseCache cache = this.responseCache;
+    if (cache == null) {
+      File directory = getResponseCacheDirectory();
+      if (directory != null) {
+        cache = createResponseCache(directory);
+        this.responseCache = cache;
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * Creates the cache for the responses of this client. Subclasses that need the last good response
+   * of every URL offline return a {@link HttpResponseCache#createMirror(File) mirror}.
+   *
+   * @param directory the directory to store the cached responses in
+   * @return the response cache
+   */
+  protected HttpResponseCache createResponseCache(File directory) {
+    return new HttpResponseCache(directory);
+  }
+
+  private File getResponseCacheDirectory() {
+    Bundle bundle = FrameworkUtil.getBundle(getClass());
+    if (bundle == null) {
+      return null;
+    }
+    try {
+      return Platform.getStateLocation(bundle).append(RESPONSE_CACHE_DIRECTORY).toFile();
+    } catch (IllegalStateException e) {
+      // no instance location, e.g. when running with -data @none
+      return null;
+    }
+  }
+
+  /**
+   * Gets the HTTP client of this instance. The client is created on first use and kept until
+   * {@link #deactivate()} is called. It is backed by a thread safe pooling connection manager and
+   * can therefore be shared by concurrent requests.
+   *
+   * @return the HTTP client
+   */
+  protected HttpClient getHttpClient() {
+    DefaultHttpClient client = this.httpClient;
+    if (client == null) {
+      synchronized (this.httpClientLock) {
+        client = this.httpClient;
+        if (client == null) {
+          client = createHttpClient();
+          this.httpClient = client;
+        }
+      }
+    }
+    return client;
+  }
+
+  private DefaultHttpClient createHttpClient() {
+    SchemeRegistry schemeRegistry = new SchemeRegistry();
+    schemeRegistry.register(new Scheme("http", 80, PlainSocketFactory.getSocketFactory()));
+    schemeRegistry.register(new Scheme("https", 443, SSLSocketFactory.getSocketFactory()));
+
+    ThreadSafeClientConnManager connectionManager = new ThreadSafeClientConnManager(schemeRegistry);
+    connectionManager.setMaxTotal(MAX_TOTAL_CONNECTIONS);
+    connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+
+    DefaultHttpClient client = new DefaultHttpClient(connectionManager);
+    HttpParams params = client.getParams();
+    HttpConnectionParams.setConnectionTimeout(params, CONNECTION_TIMEOUT_MILLIS);
+    HttpConnectionParams.setSoTimeout(params, SOCKET_TIMEOUT_MILLIS);
+    HttpConnectionParams.setStaleCheckingEnabled(params, true);
+    return client;
+  }
+
+  /**
+   * Closes pooled connections that were closed by the server or that have been idle for too long.
+   * Doing this before each request is cheap and saves us a dedicated eviction thread.
+   *
+   * @param client the client whose connections to evict
+   */
+  private static void evictStaleConnections(HttpClient client) {
+    ClientConnectionManager connectionManager = client.getConnectionManager();
+    connectionManager.closeExpiredConnections();
+    connectionManager.closeIdleConnections(IDLE_CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Activates this component. Creates the HTTP client eagerly.
+   */
+  public void activate() {
+    getHttpClient();
+  }
+
+  /**
+   * Deactivates this component. Shuts down the connection manager and closes all pooled connections.
+   */
+  public void deactivate() {
+    synchronized (this.httpClientLock) {
+      if (this.httpClient != null) {
+        this.httpClient.getConnectionManager().shutdown();
+        this.httpClient = null;
+      }
     }
   }
 
-  private void configureProxySettings(HttpClient client, HttpGet get) {
+  private void configureProxySettings(HttpGet get) {
     if (getProxyService() != null
         && getProxyService().getProxyData() != null
         && getProxyService().getProxyData().length > 0) {
@@ -213,21 +457,14 @@ public abstract class AbstractHttpClient {
             && proxyData.getHost() != null
             && proxyData.getType().equalsIgnoreCase(requestScheme)) {
           HttpHost proxy = new HttpHost(proxyData.getHost(), proxyData.getPort(), requestScheme);
-          client.getParams().setParameter(ConnRoutePNames.DEFAULT_PROXY, proxy);
+          // the client is shared, so the proxy goes into the request parameters
+          get.getParams().setParameter(ConnRoutePNames.DEFAULT_PROXY, proxy);
           break;
         }
       }
     }
   }
 
-  private void configureSslHandling(HttpClient httpClient) throws CoreException {
-    Scheme http = new Scheme("http", 80, PlainSocketFactory.getSocketFactory());
-    Scheme https = new Scheme("https", 443, SSLSocketFactory.getSocketFactory());
-    SchemeRegistry sr = httpClient.getConnectionManager().getSchemeRegistry();
-    sr.register(http);
-    sr.register(https);
-  }
-
   private CoreException wrapIoException(IOException e) {
     return this.wrapGenericException(e);
   }
@@ -0,0 +1,570 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.common.net;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHttpResponse;
+
+import ch.netcetera.eclipse.common.io.IOUtil;
+
+/**
+ * A persistent cache for HTTP response bodies and their validators (<code>ETag</code> and
+ * <code>Last-Modified</code>).
+ *
+ * <p>
+ * Every cached URL is stored as a pair of files in the cache directory: a properties file holding
+ * the validators and a body file holding the raw (possibly still content encoded) response body.
+ * The properties file references the body file by name and is replaced last, so readers always see
+ * a consistent pair.
+ * </p>
+ *
+ * <p>
+ * Body files are never written to once they have been committed. A body that is replaced or evicted
+ * is kept for a grace period, so readers that still hold the entry it belongs to can read it to the
+ * end. The cache holds a bounded number of entries, the ones accessed least recently are evicted
+ * first.
+ * </p>
+ *
+ * <p>
+ * A cache created with {@link #createMirror(File)} serves as local mirror instead: it stores every
+ * successful response, whether it carries validators or not, and never evicts an entry, so it holds
+ * the last good body of every URL that has been fetched.
+ * </p>
+ */
+public final class HttpResponseCache {
+
+  private static final String HEADER_ETAG = "ETag";
+  private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+  private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+  private static final String HEADER_CONTENT_TYPE = "Content-Type";
+
+  private static final String KEY_URL = "url";
+  private static final String KEY_BODY = "body";
+  private static final String KEY_ETAG = "etag";
+  private static final String KEY_LAST_MODIFIED = "lastModified";
+  private static final String KEY_CONTENT_ENCODING = "contentEncoding";
+  private static final String KEY_CONTENT_TYPE = "contentType";
+
+  private static final String PROPERTIES_SUFFIX = ".properties";
+  private static final String BODY_SUFFIX = ".body";
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  /** The default maximum number of cached responses. */
+  private static final int DEFAULT_MAX_ENTRIES = 100;
+
+  /** The maximum number of entries of a mirror, i.e. no limit. */
+  private static final int UNBOUNDED = Integer.MAX_VALUE;
+
+  /** How long bodies that are no longer referenced are kept for readers that still hold them. */
+  private static final long DEFAULT_ORPHAN_GRACE_MILLIS = TimeUnit.HOURS.toMillis(1L);
+
+  /** Orders properties files by last access, most recent first. */
+  private static final Comparator<File> LAST_ACCESS_ORDER = new Comparator<File>() {
+
+    /** {@inheritDoc} */
+    @Override
+    public int compare(File first, File second) {
+      long firstAccess = first.lastModified();
+      long secondAccess = second.lastModified();
+      return firstAccess > secondAccess ? -1 : firstAccess == secondAccess ? 0 : 1;
+    }
+  };
+
+  private final File directory;
+  private final int maxEntries;
+  private final long orphanGraceMillis;
+  private final boolean mirror;
+
+  /**
+   * A cached response.
+   */
+  public static final class Entry {
+
+    private final File body;
+    private final String entityTag;
+    private final String lastModified;
+    private final String contentEncoding;
+    private final String contentType;
+
+    /**
+     * Constructor.
+     *
+     * @param body the file holding the body
+     * @param entityTag the entity tag or {@code null}
+     * @param lastModified the last modified date or {@code null}
+     * @param contentEncoding the content encoding or {@code null}
+     * @param contentType the content type or {@code null}
+     */
+    Entry(File body, String entityTag, String lastModified, String contentEncoding, String contentType) {
+      this.body = body;
+      this.entityTag = entityTag;
+      this.lastModified = lastModified;
+      this.contentEncoding = contentEncoding;
+      this.contentType = contentType;
+    }
+
+    /**
+     * Gets the entity tag.
+     *
+     * @return the entity tag or {@code null} if the server did not send one
+     */
+    public String getEntityTag() {
+      return this.entityTag;
+    }
+
+    /**
+     * Gets the last modified date as sent by the server.
+     *
+     * @return the last modified date or {@code null} if the server did not send one
+     */
+    public String getLastModified() {
+      return this.lastModified;
+    }
+
+    /**
+     * Creates a response that serves the cached body as if the server had just sent it.
+     *
+     * @return a {@code 200 OK} response with the cached body
+     */
+    public HttpResponse toResponse() {
+      BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+      if (this.entityTag != null) {
+        response.addHeader(HEADER_ETAG, this.entityTag);
+      }
+      if (this.lastModified != null) {
+        response.addHeader(HEADER_LAST_MODIFIED, this.lastModified);
+      }
+      if (this.contentEncoding != null) {
+        response.addHeader(HEADER_CONTENT_ENCODING, this.contentEncoding);
+      }
+      response.setEntity(new FileEntity(this.body, this.contentType));
+      return response;
+    }
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param directory the directory to store the cached responses in, created on demand
+   */
+  public HttpResponseCache(File directory) {
+    this(directory, DEFAULT_MAX_ENTRIES, DEFAULT_ORPHAN_GRACE_MILLIS, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param directory the directory to store the cached responses in, created on demand
+   * @param maxEntries the maximum number of cached responses
+   * @param orphanGraceMillis how long bodies that are no longer referenced are kept
+   * @param mirror {@code true} to store responses without validators too
+   */
+  HttpResponseCache(File directory, int maxEntries, long orphanGraceMillis, boolean mirror) {
+    this.directory = directory;
+    this.maxEntries = maxEntries;
+    this.orphanGraceMillis = orphanGraceMillis;
+    this.mirror = mirror;
+  }
+
+  /**
+   * Creates a cache that serves as local mirror. It stores every successful response, also the ones
+   * without validators, and never evicts an entry. It is meant for clients that fetch a small set of
+   * URLs whose last good body must stay available offline.
+   *
+   * @param directory the directory to store the cached responses in, created on demand
+   * @return the cache
+   */
+  public static HttpResponseCache createMirror(File directory) {
+    return new HttpResponseCache(directory, UNBOUNDED, DEFAULT_ORPHAN_GRACE_MILLIS, true);
+  }
+
+  /**
+   * Gets the cached response of an URL. The access is recorded, see the eviction in
+   * {@link #commit(String, Properties, File)}.
+   *
+   * @param url the URL
+   * @return the cached response or {@code null} if there is none
+   */
+  public Entry get(String url) {
+    File propertiesFile = getPropertiesFile(url);
+    Properties properties = load(propertiesFile);
+    if (properties == null) {
+      return null;
+    }
+    String bodyName = properties.getProperty(KEY_BODY);
+    if (!url.equals(properties.getProperty(KEY_URL)) || bodyName == null) {
+      return null;
+    }
+    File body = new File(this.directory, bodyName);
+    if (!body.isFile()) {
+      return null;
+    }
+    propertiesFile.setLastModified(System.currentTimeMillis());
+    return new Entry(body,
+        properties.getProperty(KEY_ETAG),
+        properties.getProperty(KEY_LAST_MODIFIED),
+        properties.getProperty(KEY_CONTENT_ENCODING),
+        properties.getProperty(KEY_CONTENT_TYPE));
+  }
+
+  /**
+   * Checks whether a response carries validators and can therefore be revalidated later on.
+   *
+   * @param response the response
+   * @return {@code true} if the response can be cached
+   */
+  public static boolean isCacheable(HttpResponse response) {
+    return response.getEntity() != null
+        && (response.getFirstHeader(HEADER_ETAG) != null
+            || response.getFirstHeader(HEADER_LAST_MODIFIED) != null);
+  }
+
+  /**
+   * Checks whether this cache stores a successful response. A mirror stores every response that has
+   * a body, other caches only the {@link #isCacheable(HttpResponse) cacheable} ones.
+   *
+   * @param response the response
+   * @return {@code true} if the response is stored
+   */
+  public boolean accepts(HttpResponse response) {
+    return this.mirror ? response.getEntity() != null : isCacheable(response);
+  }
+
+  /**
+   * Wraps the entity of a response such that its body is written to the cache while it is being
+   * read. The cache entry is only committed once the body has been read completely and the stream
+   * has been closed.
+   *
+   * @param url the URL the response belongs to
+   * @param response the response to wrap, must be {@link #accepts(HttpResponse) accepted}
+   * @return the response
+   */
+  public HttpResponse wrap(String url, HttpResponse response) {
+    response.setEntity(new CachingEntity(url, response));
+    return response;
+  }
+
+  private File getPropertiesFile(String url) {
+    return new File(this.directory, getKey(url) + PROPERTIES_SUFFIX);
+  }
+
+  private static String getKey(String url) {
+    return DigestUtils.shaHex(url);
+  }
+
+  private static Properties load(File propertiesFile) {
+    if (!propertiesFile.isFile()) {
+      return null;
+    }
+    Properties properties = new Properties();
+    InputStream input = null;
+    try {
+      input = new FileInputStream(propertiesFile);
+      properties.load(input);
+    } catch (IOException e) {
+      return null;
+    } finally {
+      IOUtil.closeSilently(input);
+    }
+    return properties;
+  }
+
+  private static String getHeaderValue(HttpResponse response, String name) {
+    Header header = response.getFirstHeader(name);
+    return header != null ? header.getValue() : null;
+  }
+
+  /**
+   * Commits a response to the cache and evicts the entries accessed least recently if there are too
+   * many. The body a committed entry replaces is not deleted but left to
+   * {@link #deleteOrphanedBodies(Set)}.
+   *
+   * @param url the URL
+   * @param properties the properties of the response
+   * @param body the body of the response, the file is not written to afterwards
+   * @throws IOException if the entry cannot be stored
+   */
+  private synchronized void commit(String url, Properties properties, File body) throws IOException {
+    String key = getKey(url);
+    File propertiesFile = getPropertiesFile(url);
+    Entry previous = get(url);
+
+    properties.setProperty(KEY_URL, url);
+    properties.setProperty(KEY_BODY, body.getName());
+
+    File tempProperties = File.createTempFile(key, TEMP_SUFFIX, this.directory);
+    OutputStream output = new FileOutputStream(tempProperties);
+    try {
+      properties.store(output, null);
+    } finally {
+      IOUtil.closeSilently(output);
+    }
+    // the rename replaces the file atomically where the platform allows it, File.renameTo does not
+    // replace existing files on all platforms though
+    if (!tempProperties.renameTo(propertiesFile)
+        && ((!propertiesFile.delete() && propertiesFile.exists()) || !tempProperties.renameTo(propertiesFile))) {
+      tempProperties.delete();
+      throw new IOException("could not move " + tempProperties + " to " + propertiesFile);
+    }
+    if (previous != null && !previous.body.equals(body)) {
+      // starts the grace period of the body
+      previous.body.setLastModified(System.currentTimeMillis());
+    }
+    deleteOrphanedBodies(evict());
+  }
+
+  /**
+   * Evicts the entries accessed least recently until there are at most as many as allowed.
+   *
+   * @return the names of the bodies of the entries kept
+   */
+  private Set<String> evict() {
+    File[] propertiesFiles = listFiles(PROPERTIES_SUFFIX);
+    Arrays.sort(propertiesFiles, LAST_ACCESS_ORDER);
+    Set<String> referencedBodies = new HashSet<String>();
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < propertiesFiles.length; i++) {
+      Properties properties = load(propertiesFiles[i]);
+      String bodyName = properties != null ? properties.getProperty(KEY_BODY) : null;
+      if (i < this.maxEntries) {
+        if (bodyName != null) {
+          referencedBodies.add(bodyName);
+        }
+      } else if (propertiesFiles[i].delete() && bodyName != null) {
+        // starts the grace period of the body
+        new File(this.directory, bodyName).setLastModified(now);
+      }
+    }
+    return referencedBodies;
+  }
+
+  /**
+   * Deletes the bodies that are not referenced by an entry and whose grace period is over. Bodies
+   * that are still being downloaded are not referenced either, they are kept as long as they are
+   * being written to.
+   *
+   * @param referencedBodies the names of the bodies referenced by an entry
+   */
+  private void deleteOrphanedBodies(Set<String> referencedBodies) {
+    long threshold = System.currentTimeMillis() - this.orphanGraceMillis;
+    for (File body : listFiles(BODY_SUFFIX)) {
+      if (!referencedBodies.contains(body.getName()) && body.lastModified() < threshold) {
+        body.delete();
+      }
+    }
+  }
+
+  private File[] listFiles(final String suffix) {
+    File[] files = this.directory.listFiles(new FileFilter() {
+
+      /** {@inheritDoc} */
+      @Override
+      public boolean accept(File file) {
+        return file.getName().endsWith(suffix) && file.isFile();
+      }
+    });
+    return files != null ? files : new File[0];
+  }
+
+  /**
+   * Entity that copies the response body to a temporary file while it is being read.
+   */
+  private final class CachingEntity extends HttpEntityWrapper {
+
+    private final String url;
+    private final Properties properties = new Properties();
+
+    /**
+     * Constructor.
+     *
+     * @param url the URL
+     * @param response the response whose entity to wrap
+     */
+    CachingEntity(String url, HttpResponse response) {
+      super(response.getEntity());
+      this.url = url;
+      putIfNotNull(KEY_ETAG, getHeaderValue(response, HEADER_ETAG));
+      putIfNotNull(KEY_LAST_MODIFIED, getHeaderValue(response, HEADER_LAST_MODIFIED));
+      putIfNotNull(KEY_CONTENT_ENCODING, getHeaderValue(response, HEADER_CONTENT_ENCODING));
+      putIfNotNull(KEY_CONTENT_TYPE, getHeaderValue(response, HEADER_CONTENT_TYPE));
+    }
+
+    private void putIfNotNull(String key, String value) {
+      if (value != null) {
+        this.properties.setProperty(key, value);
+      }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getContent() throws IOException {
+      InputStream content = super.getContent();
+      File tempBody = null;
+      OutputStream cache = null;
+      try {
+        if (!HttpResponseCache.this.directory.isDirectory()) {
+          HttpResponseCache.this.directory.mkdirs();
+        }
+        // body files get unique names and are never overwritten, see commit(..)
+        tempBody = File.createTempFile(getKey(this.url) + "-", BODY_SUFFIX, HttpResponseCache.this.directory);
+        cache = new FileOutputStream(tempBody);
+      } catch (IOException e) {
+        // caching is best effort, the caller still gets its content
+        IOUtil.closeSilently(cache);
+        if (tempBody != null) {
+          tempBody.delete();
+        }
+        return content;
+      }
+      return new CachingInputStream(content, cache, tempBody, this.url, this.properties);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isRepeatable() {
+      return false;
+    }
+  }
+
+  /**
+   * Input stream that writes everything it reads to a cache file.
+   */
+  private final class CachingInputStream extends FilterInputStream {
+
+    private final OutputStream cache;
+    private final File tempBody;
+    private final String url;
+    private final Properties properties;
+    private boolean failed;
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param input the stream to read from
+     * @param cache the stream to write the cached copy to
+     * @param tempBody the file behind {@code cache}
+     * @param url the URL
+     * @param properties the cache properties
+     */
+    CachingInputStream(InputStream input, OutputStream cache, File tempBody, String url,
+        Properties properties) {
+      super(input);
+      this.cache = cache;
+      this.tempBody = tempBody;
+      this.url = url;
+      this.properties = properties;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read() throws IOException {
+      int data = super.read();
+      if (data != -1) {
+        writeToCache(new byte[] {(byte) data}, 0, 1);
+      }
+      return data;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read > 0) {
+        writeToCache(b, off, read);
+      }
+      return read;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long skip(long n) throws IOException {
+      // skipped bytes would be missing in the cached copy
+      byte[] buffer = new byte[(int) Math.min(n, AbstractHttpClient.DEFAULT_BUFFER_SIZE)];
+      int read = read(buffer, 0, buffer.length);
+      return read == -1 ? 0 : read;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    private void writeToCache(byte[] b, int off, int len) {
+      if (!this.failed) {
+        try {
+          this.cache.write(b, off, len);
+        } catch (IOException e) {
+          this.failed = true;
+        }
+      }
+    }
+
+    /**
+     * Closes the stream. Whatever has not been read yet is read into the cache first, the
+     * connection manager would do the same to reuse the connection.
+     *
+     * @throws IOException on error
+     */
+    @Override
+    public void close() throws IOException {
+      if (this.closed) {
+        return;
+      }
+      this.closed = true;
+      try {
+        byte[] buffer = new byte[AbstractHttpClient.DEFAULT_BUFFER_SIZE];
+        while (!this.failed && read(buffer, 0, buffer.length) != -1) { // NOPMD empty loop body is ok
+        }
+      } catch (IOException e) {
+        this.failed = true;
+      } finally {
+        IOUtil.closeSilently(this.cache);
+        try {
+          if (!this.failed) {
+            commit(this.url, this.properties, this.tempBody);
+          }
+        } catch (IOException e) {
+          this.failed = true;
+        } finally {
+          if (this.failed) {
+            this.tempBody.delete();
+          }
+          super.close();
+        }
+      }
+    }
+  }
+}
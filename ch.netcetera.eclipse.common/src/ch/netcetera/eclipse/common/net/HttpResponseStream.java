@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.common.net;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.http.client.methods.HttpUriRequest;
+
+/**
+ * The body of a HTTP response as a stream, along with the entity tag of the response.
+ *
+ * <p>
+ * Closing the stream before the end of the body has been reached aborts the request: the rest of
+ * the body is not downloaded and the connection is closed rather than handed back to the pool.
+ * </p>
+ */
+public final class HttpResponseStream extends FilterInputStream {
+
+  private final String entityTag;
+  private final HttpUriRequest request;
+  private boolean endOfStream;
+
+  /**
+   * Constructor for a response that is not read from the network.
+   *
+   * @param stream the response body
+   * @param entityTag the entity tag or {@code null} if the server did not send one
+   */
+  HttpResponseStream(InputStream stream, String entityTag) {
+    this(stream, entityTag, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param stream the response body
+   * @param entityTag the entity tag or {@code null} if the server did not send one
+   * @param request the request to abort if the stream is closed early, may be {@code null}
+   */
+  HttpResponseStream(InputStream stream, String entityTag, HttpUriRequest request) {
+    super(stream);
+    this.entityTag = entityTag;
+    this.request = request;
+  }
+
+  /**
+   * Gets the entity tag of the response.
+   *
+   * @return the entity tag or {@code null} if the server did not send one
+   */
+  public String getEntityTag() {
+    return this.entityTag;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int read() throws IOException {
+    int data = super.read();
+    this.endOfStream = data == -1;
+    return data;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int read = super.read(b, off, len);
+    this.endOfStream = read == -1;
+    return read;
+  }
+
+  /**
+   * Closes the stream and aborts the request if the end of the body has not been reached.
+   *
+   * @throws IOException on error
+   */
+  @Override
+  public void close() throws IOException {
+    boolean aborted = false;
+    if (!this.endOfStream && this.request != null) {
+      this.request.abort();
+      aborted = true;
+    }
+    try {
+      super.close();
+    } catch (IOException e) {
+      // the connection of an aborted request cannot be released cleanly
+      if (!aborted) {
+        throw e;
+      }
+    }
+  }
+}
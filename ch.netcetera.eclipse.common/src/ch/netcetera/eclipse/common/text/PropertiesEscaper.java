@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.common.text;
+
+/**
+ * Escapes keys and values the way {@link java.util.Properties#store(java.io.OutputStream, String)}
+ * does, so that a line {@code key=value} can be read back by {@link java.util.Properties#load}.
+ */
+public final class PropertiesEscaper {
+
+  private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+  /**
+   * Private default constructor.
+   */
+  private PropertiesEscaper() {
+    throw new AssertionError("not instantiable.");
+  }
+
+
+  /**
+   * Escapes a key. All spaces are escaped because a space ends the key.
+   *
+   * @param key the key to escape
+   * @return the escaped key
+   */
+  public static String escapeKey(String key) {
+    return escape(key, true);
+  }
+
+  /**
+   * Escapes a value. Only a leading space is escaped, it would be dropped otherwise.
+   *
+   * @param value the value to escape
+   * @return the escaped value
+   */
+  public static String escapeValue(String value) {
+    return escape(value, false);
+  }
+
+  private static String escape(String text, boolean isKey) {
+    StringBuilder escaped = new StringBuilder(text.length() * 2);
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case ' ':
+          if (i == 0 || isKey) {
+            escaped.append('\\');
+          }
+          escaped.append(' ');
+          break;
+        case '\t':
+          escaped.append("\\t");
+          break;
+        case '\n':
+          escaped.append("\\n");
+          break;
+        case '\r':
+          escaped.append("\\r");
+          break;
+        case '\f':
+          escaped.append("\\f");
+          break;
+        case '\\':
+        case '=':
+        case ':':
+        case '#':
+        case '!':
+          escaped.append('\\').append(c);
+          break;
+        default:
+          if (c < 0x0020 || c > 0x007e) {
+            escaped.append("\\u")
+                .append(HEX_DIGITS[(c >> 12) & 0xF])
+                .append(HEX_DIGITS[(c >> 8) & 0xF])
+                .append(HEX_DIGITS[(c >> 4) & 0xF])
+                .append(HEX_DIGITS[c & 0xF]);
+          } else {
+            escaped.append(c);
+          }
+      }
+    }
+    return escaped.toString();
+  }
+}
@@ -28,11 +28,21 @@ import ch.netcetera.eclipse.common.text.ITextAccessor;
 public interface IProjectConfigurationService {
 
   /**
-   * Runs a project configuration script.
+   * Runs a project configuration script on all projects passed, including the ones it has already
+   * been applied to.
+   * <p>
+   * The projects are configured concurrently, each one running all commands of the script in order
+   * in a workspace operation with the project as scheduling rule. The commands change the project
+   * through the workspace or refresh exactly the resources they have written, the projects are not
+   * refreshed as a whole. The net nature changes of a project are applied with a single update of
+   * its description after the other commands. Builds and resource change notifications are deferred
+   * until the operation of the project has ended. The caller must not hold a scheduling rule that
+   * conflicts with the projects.
+   * </p>
    * <p>
    * The status returned is set to {@link IStatus#WARNING} if at least one
-   * command reported not {@link IStatus#isOK()}. Details about the individual
-   * errors can be found in the error log.
+   * command reported not {@link IStatus#isOK()}, it then has a child per project
+   * affected. Details about the individual errors can be found in the error log.
    * </p>
    *
    * @param projectList the projects to apply the properties
@@ -44,4 +54,26 @@ public interface IProjectConfigurationService {
    */
   IStatus runConfigurationScript(List<IProject> projectList, String scriptUrl, ITextAccessor textAccessor,
       String pluginId, ILog log);
+
+  /**
+   * Runs a project configuration script like
+   * {@link #runConfigurationScript(List, String, ITextAccessor, String, ILog)} does.
+   * <p>
+   * Every project the script has run on without problems keeps a record of the URL, content hash and
+   * version of the script and when it was applied in its project scoped preferences. Unless forced,
+   * projects whose record matches the script as it is now are left out, so running a script on the
+   * whole workspace only touches the projects that are new or have not been configured with the
+   * current script yet.
+   * </p>
+   *
+   * @param projectList the projects to apply the properties
+   * @param scriptUrl the URL of the script
+   * @param force whether to run the script on projects it has already been applied to
+   * @param textAccessor the text accessor
+   * @param pluginId the plugin id
+   * @param log the log
+   * @return the status
+   */
+  IStatus runConfigurationScript(List<IProject> projectList, String scriptUrl, boolean force,
+      ITextAccessor textAccessor, String pluginId, ILog log);
 }
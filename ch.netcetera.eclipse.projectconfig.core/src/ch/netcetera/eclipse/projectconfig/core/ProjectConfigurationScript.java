@@ -13,7 +13,9 @@
 package ch.netcetera.eclipse.projectconfig.core;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import ch.netcetera.eclipse.projectconfig.core.configurationcommands.IProjectConfigurationCommand;
 
@@ -27,7 +29,9 @@ public class ProjectConfigurationScript {
   public static final String SCRIPT_METADATA_KEY_VERSION = "version";
 
   private List<IProjectConfigurationCommand> commandList = new ArrayList<IProjectConfigurationCommand>();
+  private final Map<String, String> metadata = new LinkedHashMap<String, String>();
   private String url = "";
+  private String contentHash;
 
   /**
    * Constructor.
@@ -56,6 +60,54 @@ public class ProjectConfigurationScript {
     return this.commandList;
   }
 
+  /**
+   * Sets a metadata tag.
+   *
+   * @param key the key of the tag
+   * @param value the value of the tag
+   */
+  public void setMetadata(String key, String value) {
+    this.metadata.put(key, value);
+  }
+
+  /**
+   * Gets a metadata tag.
+   *
+   * @param key the key of the tag
+   * @return the value of the tag or {@code null} if the script does not declare it
+   */
+  public String getMetadata(String key) {
+    return this.metadata.get(key);
+  }
+
+  /**
+   * Gets the version the script declares with the {@link #SCRIPT_METADATA_KEY_VERSION} tag.
+   *
+   * @return the version or {@code null} if the script does not declare one
+   */
+  public String getVersion() {
+    return getMetadata(SCRIPT_METADATA_KEY_VERSION);
+  }
+
+  /**
+   * Sets the hash of the content of the script.
+   *
+   * @param contentHash the hash
+   */
+  public void setContentHash(String contentHash) {
+    this.contentHash = contentHash;
+  }
+
+  /**
+   * Gets the hash of the content of the script. Scripts with the same commands and metadata have the
+   * same hash.
+   *
+   * @return the hash or {@code null} if the script has not been parsed
+   */
+  public String getContentHash() {
+    return this.contentHash;
+  }
+
   /**
    * Sets the URL.
    *
@@ -23,7 +23,8 @@ import ch.netcetera.eclipse.common.text.ITextAccessor;
 /**
  * Abstract project configuration command to handle nature operations.
  */
-abstract class AbstractNatureProjectConfigurationCommand extends AbstractProjectConfigurationCommand {
+abstract class AbstractNatureProjectConfigurationCommand extends AbstractProjectConfigurationCommand
+    implements INatureProjectConfigurationCommand {
 
   /**
    * Constructor.
@@ -51,6 +52,15 @@ abstract class AbstractNatureProjectConfigurationCommand extends AbstractProject
     return project.getNature(natureID) != null;
   }
 
+  /**
+   * Gets the ID of the nature the command changes.
+   *
+   * @return the nature ID
+   */
+  String getNatureId() {
+    return getArgumentList().get(1);
+  }
+
   /**
    * {@inheritDoc}
    */
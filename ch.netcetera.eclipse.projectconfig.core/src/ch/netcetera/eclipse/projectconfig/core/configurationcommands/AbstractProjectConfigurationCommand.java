@@ -15,6 +15,8 @@ package ch.netcetera.eclipse.projectconfig.core.configurationcommands;
 import java.util.List;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.ILog;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -66,11 +68,7 @@ public abstract class AbstractProjectConfigurationCommand implements IProjectCon
     boolean error = false;
     if (projectList != null && !projectList.isEmpty() && isEnabled()) {
       for (IProject project : projectList) {
-        IStatus result = executeOnProject(project);
-        if (!result.isOK()) {
-          getLog().log(result);
-          error = true;
-        }
+        error |= !execute(project).isOK();
       }
     }
     if (error) {
@@ -79,6 +77,29 @@ public abstract class AbstractProjectConfigurationCommand implements IProjectCon
     return globalResult;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public IStatus execute(IProject project) {
+    if (project == null || !isEnabled()) {
+      return Status.OK_STATUS;
+    }
+    IStatus result = executeOnProject(project);
+    if (!result.isOK()) {
+      getLog().log(result);
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void endRun() {
+    // nothing kept by default
+  }
+
   /**
    * Executes the command on a single project.
    *
@@ -122,6 +143,44 @@ public abstract class AbstractProjectConfigurationCommand implements IProjectCon
     return this.log;
   }
 
+  /**
+   * Brings a resource of a project in sync with the file system without scanning the rest of the
+   * project. If the parent of the resource is not known to the workspace either, the topmost unknown
+   * ancestor is refreshed with its subtree instead.
+   *
+   * @param resource the resource
+   * @throws CoreException if the resource cannot be refreshed
+   */
+  static void refresh(IResource resource) throws CoreException {
+    IResource target = resource;
+    int depth = IResource.DEPTH_ZERO;
+    while (target.getType() != IResource.PROJECT && !target.getParent().exists()) {
+      target = target.getParent();
+      depth = IResource.DEPTH_INFINITE;
+    }
+    target.refreshLocal(depth, null);
+  }
+
+  /**
+   * Gets the line of the script the command has been created from.
+   *
+   * @return the command name and the arguments separated by spaces
+   */
+  @Override
+  public String toString() {
+    if (this.argumentList == null) {
+      return super.toString();
+    }
+    StringBuilder line = new StringBuilder();
+    for (String argument : this.argumentList) {
+      if (line.length() > 0) {
+        line.append(' ');
+      }
+      line.append(argument);
+    }
+    return line.toString();
+  }
+
   /**
    * Gets a {@link IStatus}.
    *
@@ -54,7 +54,7 @@ public class AddNatureProjectConfigurationCommand extends AbstractNatureProjectC
     IStatus status = Status.OK_STATUS;
 
     try {
-      String newNatureID = getArgumentList().get(1);
+      String newNatureID = getNatureId();
       if (projectHasNature(project, newNatureID)) {
         return status;
       }
@@ -69,4 +69,14 @@ public class AddNatureProjectConfigurationCommand extends AbstractNatureProjectC
     }
     return status;
   }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void collect(NatureChangeSet changeSet) {
+    if (isEnabled()) {
+      changeSet.add(getNatureId(), this);
+    }
+  }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.projectconfig.core.configurationcommands;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.codec.binary.Hex;
+
+import ch.netcetera.eclipse.common.io.IOUtil;
+
+/**
+ * Temporary cache of the files downloaded while a script runs. Each distinct URL is downloaded once,
+ * the first time a project needs it, projects asking for a URL that is being downloaded wait for
+ * the download in flight. The files are stored under the hash of their content, so URLs serving the
+ * same content share a file. Failed downloads are cached as well and are not repeated for every
+ * project.
+ */
+public final class DownloadCache {
+
+  private static final String DIGEST_ALGORITHM = "SHA-1";
+
+  private final ConcurrentMap<String, FutureTask<File>> downloads = new ConcurrentHashMap<String, FutureTask<File>>();
+
+  /** The directory of the cached files, guarded by {@code this}. */
+  private File directory;
+
+  /**
+   * Gets the file downloaded from a URL, downloading it unless that has been done already.
+   *
+   * @param url the URL
+   * @param downloader the downloader to use if the file has not been downloaded yet
+   * @return the cached file, it must not be modified
+   * @throws IOException if the file could not be downloaded
+   */
+  File get(final String url, final Downloader downloader) throws IOException {
+    FutureTask<File> download = this.downloads.get(url);
+    if (download == null) {
+      FutureTask<File> newDownload = new FutureTask<File>(new Callable<File>() {
+
+        /** {@inheritDoc} */
+        @Override
+        public File call() throws IOException {
+          return download(url, downloader);
+        }
+      });
+      download = this.downloads.putIfAbsent(url, newDownload);
+      if (download == null) {
+        download = newDownload;
+        newDownload.run();
+      }
+    }
+    try {
+      return download.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      IOException exception = new IOException(e.getCause().getLocalizedMessage());
+      exception.initCause(e.getCause());
+      throw exception;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the download of " + url);
+    }
+  }
+
+  private File download(String url, Downloader downloader) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      IOException exception = new IOException(e.getLocalizedMessage());
+      exception.initCause(e);
+      throw exception;
+    }
+    File temporaryFile = File.createTempFile("download", ".tmp", getDirectory());
+    OutputStream output = null;
+    try {
+      output = new DigestOutputStream(new FileOutputStream(temporaryFile), digest);
+      downloader.download(url, output);
+      output.close();
+    } catch (IOException e) {
+      IOUtil.closeSilently(output);
+      temporaryFile.delete();
+      throw e;
+    }
+
+    File file = new File(temporaryFile.getParentFile(), new String(Hex.encodeHex(digest.digest())));
+    synchronized (this) {
+      if (file.exists()) {
+        // another URL has served the same content
+        temporaryFile.delete();
+      } else if (!temporaryFile.renameTo(file)) {
+        temporaryFile.delete();
+        throw new IOException("Could not store the download of " + url);
+      }
+    }
+    return file;
+  }
+
+  private synchronized File getDirectory() throws IOException {
+    if (this.directory == null) {
+      File file = File.createTempFile("projectconfig", "");
+      if (!file.delete() || !file.mkdir()) {
+        throw new IOException("Could not create " + file);
+      }
+      this.directory = file;
+    }
+    return this.directory;
+  }
+
+  /**
+   * Deletes the cached files. URLs asked for afterwards are downloaded again.
+   */
+  public synchronized void clear() {
+    this.downloads.clear();
+    if (this.directory != null) {
+      File[] files = this.directory.listFiles();
+      if (files != null) {
+        for (File file : files) {
+          file.delete();
+        }
+      }
+      this.directory.delete();
+      this.directory = null;
+    }
+  }
+
+  /**
+   * Downloads the file of a URL.
+   */
+  interface Downloader {
+
+    /**
+     * Downloads the file of a URL.
+     *
+     * @param url the URL
+     * @param output the stream to write the file to
+     * @throws IOException if the file could not be downloaded
+     */
+    void download(String url, OutputStream output) throws IOException;
+  }
+}
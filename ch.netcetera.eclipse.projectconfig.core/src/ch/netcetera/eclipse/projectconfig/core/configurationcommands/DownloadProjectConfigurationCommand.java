@@ -13,8 +13,6 @@
 package ch.netcetera.eclipse.projectconfig.core.configurationcommands;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -27,9 +25,10 @@ import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.ILog;
-import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 
@@ -48,6 +47,8 @@ public class DownloadProjectConfigurationCommand extends AbstractProjectConfigur
   /** Command name that specifies the command handled by this class. */
   public static final String COMMAND_NAME = "download";
 
+  private final DownloadCache cache;
+
   /**
    * Constructor.
    *
@@ -60,7 +61,25 @@ public class DownloadProjectConfigurationCommand extends AbstractProjectConfigur
       ITextAccessor textAccessor,
       String pluginId,
       ILog log) {
+    this(argumentList, textAccessor, pluginId, log, new DownloadCache());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param argumentList the arguments
+   * @param textAccessor the text accessor to retrieve text resources
+   * @param pluginId the plugin id used for logging
+   * @param log the log
+   * @param cache the cache of the files downloaded, shared by the download commands of a script
+   */
+  public DownloadProjectConfigurationCommand(List<String> argumentList,
+      ITextAccessor textAccessor,
+      String pluginId,
+      ILog log,
+      DownloadCache cache) {
     super(argumentList, textAccessor, pluginId, log);
+    this.cache = cache;
   }
 
   /**
@@ -69,8 +88,8 @@ public class DownloadProjectConfigurationCommand extends AbstractProjectConfigur
   @Override
   IStatus executeOnProject(IProject project) {
     String fileUrl = getFileUrl();
-    IPath targetFilePath = project.getLocation().append(getTargetFileName());
-    File targetFile = targetFilePath.toFile();
+    IFile target = project.getFile(getTargetFileName());
+    File targetFile = target.getLocation().toFile();
 
     IStatus status = Status.OK_STATUS;
 
@@ -81,6 +100,14 @@ public class DownloadProjectConfigurationCommand extends AbstractProjectConfigur
       } else if (fileUrl.toLowerCase().startsWith(PROTOCOL_PREFIX_FILE)) {
         status = downloadFileFromFile(fileUrl, targetFile);
       }
+      if (status.isOK()) {
+        // the file is written past the workspace, only it is brought in sync
+        try {
+          refresh(target);
+        } catch (CoreException e) {
+          status = createStatus(IStatus.ERROR, e.getLocalizedMessage(), e);
+        }
+      }
     }
 
     if (!status.isOK()) {
@@ -90,7 +117,8 @@ public class DownloadProjectConfigurationCommand extends AbstractProjectConfigur
   }
 
   /**
-   * Downloads a file from a local (file://) source.
+   * Downloads a file from a local (file://) source. The file is copied by the operating system without
+   * passing through the Java heap.
    *
    * @param fileUrl the file url
    * @param targetFile the target file
@@ -104,16 +132,7 @@ public class DownloadProjectConfigurationCommand extends AbstractProjectConfigur
       if (uri.getAuthority() == null) {
         File sourceFile = new File(uri);
         if (sourceFile.canRead()) {
-          OutputStream outputStream = null;
-          InputStream inputStream = null;
-          try {
-            outputStream = new FileOutputStream(targetFile);
-            inputStream = new FileInputStream(sourceFile);
-            copyFile(inputStream, outputStream);
-          } finally {
-            IOUtil.closeSilently(outputStream);
-            IOUtil.closeSilently(inputStream);
-          }
+          IOUtil.copyFile(sourceFile, targetFile);
         } else {
           status = createStatus(IStatus.ERROR,
               getTextAccessor().getText("error.cannot.read.local.file"));
@@ -131,7 +150,8 @@ public class DownloadProjectConfigurationCommand extends AbstractProjectConfigur
   }
 
   /**
-   * Downloads a file from a remote (http(s)://) source.
+   * Downloads a file from a remote (http(s)://) source. The file is downloaded once per run of the
+   * script and copied from the cache into every project.
    *
    * @param fileUrl the file url
    * @param targetFile the target file
@@ -139,37 +159,23 @@ public class DownloadProjectConfigurationCommand extends AbstractProjectConfigur
    */
   private IStatus downloadFileFromHTTP(String fileUrl, File targetFile) {
     IStatus status = Status.OK_STATUS;
-
-    HttpClient httpClient = new DefaultHttpClient();
-    HttpGet httpGet = new HttpGet(fileUrl);
-
-    int httpStatus;
-
     try {
-      HttpResponse response = httpClient.execute(httpGet);
-      httpStatus = response.getStatusLine().getStatusCode();
-      if (httpStatus != HttpStatus.SC_OK) {
-        status = createStatus(IStatus.ERROR, response.getStatusLine().getReasonPhrase());
-      } else {
-
-        OutputStream outputStream = null;
-        InputStream inputStream = null;
-        try {
-          // write response to the file
-          outputStream = new FileOutputStream(targetFile);
-          inputStream = response.getEntity().getContent();
-          copyFile(inputStream, outputStream);
-        } finally {
-          IOUtil.closeSilently(outputStream);
-          IOUtil.closeSilently(inputStream);
-        }
-      }
+      IOUtil.copyFile(this.cache.get(fileUrl, new HttpDownloader()), targetFile);
     } catch (IOException e) {
       status = createStatus(IStatus.ERROR, e.getLocalizedMessage(), e);
     }
     return status;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void endRun() {
+    this.cache.clear();
+  }
+
+
   /**
    * Copies the file from the {@link InputStream} passed to the {@link OutputStream} passed.
    *
@@ -177,7 +183,7 @@ public class DownloadProjectConfigurationCommand extends AbstractProjectConfigur
    * @param outputStream the output stream to write to
    * @throws IOException on error
    */
-  private void copyFile(InputStream inputStream, OutputStream outputStream) throws IOException {
+  private static void copyFile(InputStream inputStream, OutputStream outputStream) throws IOException {
     byte[] buffer = new byte[0x2000]; // 8k
     int len;
     while ((len = inputStream.read(buffer)) != -1) { // NOPMD pellaton 2010-11-20 ok
@@ -221,4 +227,30 @@ public class DownloadProjectConfigurationCommand extends AbstractProjectConfigur
     return getArgumentList() != null
         && (getArgumentList().size() == 4 || getArgumentList().size() == 5);
   }
+
+  /**
+   * Downloads files from remote (http(s)://) sources.
+   */
+  private static final class HttpDownloader implements DownloadCache.Downloader {
+
+    /** {@inheritDoc} */
+    @Override
+    public void download(String url, OutputStream outputStream) throws IOException {
+      HttpClient httpClient = new DefaultHttpClient();
+      try {
+        HttpResponse response = httpClient.execute(new HttpGet(url));
+        if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+          throw new IOException(response.getStatusLine().getReasonPhrase());
+        }
+        InputStream inputStream = response.getEntity().getContent();
+        try {
+          copyFile(inputStream, outputStream);
+        } finally {
+          IOUtil.closeSilently(inputStream);
+        }
+      } finally {
+        httpClient.getConnectionManager().shutdown();
+      }
+    }
+  }
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.projectconfig.core.configurationcommands;
+
+/**
+ * Interface to a command that changes the natures of a project. Script runs collect the changes of
+ * all nature commands in a {@link NatureChangeSet} and apply them at once instead of executing the
+ * commands one by one, so the project description is written only once per project.
+ *
+ * <p>
+ * The nature changes are applied after all other commands of the script have run, not at the place
+ * of the nature commands in the script. Commands must therefore not rely on a nature added or
+ * removed by an earlier line of the same script.
+ * </p>
+ */
+public interface INatureProjectConfigurationCommand extends IProjectConfigurationCommand {
+
+  /**
+   * Records the nature change of the command in a change set.
+   *
+   * @param changeSet the change set of the project
+   */
+  void collect(NatureChangeSet changeSet);
+}
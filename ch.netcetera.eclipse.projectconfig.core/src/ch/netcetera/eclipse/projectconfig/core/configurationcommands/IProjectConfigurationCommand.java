@@ -34,4 +34,22 @@ public interface IProjectConfigurationCommand {
    * @return the status of the operation
    */
   IStatus execute(List<IProject> projectList);
+
+  /**
+   * Executes the command on a single project. Callers running commands on several projects at the
+   * same time must hold the project as scheduling rule.
+   * <p>
+   * If the status returned is not {@link IStatus#isOK()}, it has been written to the error log.
+   * </p>
+   *
+   * @param project the project to apply the command to
+   * @return the status of the operation
+   */
+  IStatus execute(IProject project);
+
+  /**
+   * Releases what the command has kept while the script ran, e.g. downloaded files. Called once the
+   * script has run on all projects.
+   */
+  void endRun();
 }
\ No newline at end of file
@@ -15,7 +15,11 @@ package ch.netcetera.eclipse.projectconfig.core.configurationcommands;
 import java.io.File;
 import java.util.List;
 
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.ILog;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
@@ -49,21 +53,41 @@ public class MkdirProjectConfigurationCommand extends AbstractProjectConfigurati
    */
   @Override
   IStatus executeOnProject(IProject project) {
-    IPath pathToDirectory = project.getLocation().append(getArgumentList().get(1));
     IStatus status = Status.OK_STATUS;
-    File dirFile = pathToDirectory.toFile();
-    if (dirFile != null && !dirFile.exists()) {
-      try {
-        if (!dirFile.mkdirs()) {
-          status = createStatus(IStatus.ERROR, getTextAccessor().getText("error.createdir"));
-        }
-      } catch (SecurityException e) {
-        status = createStatus(IStatus.ERROR, e.getLocalizedMessage(), e);
+    IFolder folder = project.getFolder(getArgumentList().get(1));
+    IPath location = folder.getLocation();
+    File directory = location != null ? location.toFile() : null;
+    try {
+      if (directory == null || !directory.exists()) {
+        create(folder);
+      } else if (directory.isDirectory()) {
+        // an existing directory is only made known to the workspace, an existing file is left alone
+        refresh(folder);
       }
+    } catch (CoreException e) {
+      status = createStatus(IStatus.ERROR, e.getLocalizedMessage(), e);
     }
     return status;
   }
 
+  /**
+   * Creates a folder and its missing parents through the workspace. Parent directories that exist
+   * on the file system but are not known to the workspace yet are taken over.
+   *
+   * @param folder the folder
+   * @throws CoreException if a folder cannot be created
+   */
+  private static void create(IFolder folder) throws CoreException {
+    if (folder.exists()) {
+      return;
+    }
+    IContainer parent = folder.getParent();
+    if (parent.getType() == IResource.FOLDER) {
+      create((IFolder) parent);
+    }
+    folder.create(true, true, null);
+  }
+
   /** 
    * {@inheritDoc} 
    */
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.projectconfig.core.configurationcommands;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * The net nature changes of the commands of a script on a project. A later change of a nature
+ * replaces an earlier one, so adding and removing the same nature does nothing. All changes are
+ * applied with a single update of the project description if possible.
+ */
+public final class NatureChangeSet {
+
+  /** The last change of each nature changed, in the order of the changes. */
+  private final Map<String, Change> changes = new LinkedHashMap<String, Change>();
+
+  /**
+   * Records that a nature is added.
+   *
+   * @param natureId the ID of the nature
+   * @param command the command that adds the nature
+   */
+  void add(String natureId, INatureProjectConfigurationCommand command) {
+    record(natureId, new Change(true, command));
+  }
+
+  /**
+   * Records that a nature is removed.
+   *
+   * @param natureId the ID of the nature
+   * @param command the command that removes the nature
+   */
+  void remove(String natureId, INatureProjectConfigurationCommand command) {
+    record(natureId, new Change(false, command));
+  }
+
+  private void record(String natureId, Change change) {
+    this.changes.remove(natureId);
+    this.changes.put(natureId, change);
+  }
+
+  /**
+   * Checks whether no change has been recorded.
+   *
+   * @return {@code true} if no change has been recorded
+   */
+  public boolean isEmpty() {
+    return this.changes.isEmpty();
+  }
+
+  /**
+   * Applies the changes to the IDs of the natures of a project. The natures kept stay in their
+   * order, the natures added are appended in the order they have been added.
+   *
+   * @param natureIds the IDs of the natures of the project
+   * @return the IDs of the natures after the changes
+   */
+  String[] apply(String[] natureIds) {
+    List<String> result = new ArrayList<String>(Arrays.asList(natureIds));
+    for (Map.Entry<String, Change> change : this.changes.entrySet()) {
+      change.getValue().apply(result, change.getKey());
+    }
+    return result.toArray(new String[result.size()]);
+  }
+
+  /**
+   * Applies the changes to a project. The project description is only written if the natures
+   * change. If the changes cannot be applied at once, e.g. because a nature does not exist or
+   * misses a prerequisite, they are applied one by one, so only the changes that fail are left out.
+   * Configuring the natures requires the workspace root as scheduling rule, a caller that holds a
+   * narrower rule gets an error per change.
+   *
+   * @param project the project
+   * @param pluginId the plugin id used for the status
+   * @return the status, with an error per change that could not be applied naming its command
+   */
+  public IStatus applyTo(IProject project, String pluginId) {
+    MultiStatus status = new MultiStatus(pluginId, IStatus.OK, "Nature changes of " + project.getName(), null);
+    if (isEmpty()) {
+      return status;
+    }
+    try {
+      IProjectDescription projectDescription = project.getDescription();
+      setNatureIds(project, projectDescription, apply(projectDescription.getNatureIds()));
+    } catch (CoreException e) {
+      applyOneByOne(project, pluginId, status);
+    } catch (RuntimeException e) {
+      // e.g. the caller does not hold the workspace root as scheduling rule
+      applyOneByOne(project, pluginId, status);
+    }
+    return status;
+  }
+
+  private void applyOneByOne(IProject project, String pluginId, MultiStatus status) {
+    for (Map.Entry<String, Change> change : this.changes.entrySet()) {
+      try {
+        IProjectDescription projectDescription = project.getDescription();
+        List<String> natureIds = new ArrayList<String>(Arrays.asList(projectDescription.getNatureIds()));
+        change.getValue().apply(natureIds, change.getKey());
+        setNatureIds(project, projectDescription, natureIds.toArray(new String[natureIds.size()]));
+      } catch (CoreException changeException) {
+        status.add(createErrorStatus(project, change.getValue(), changeException, pluginId));
+      } catch (RuntimeException changeException) {
+        status.add(createErrorStatus(project, change.getValue(), changeException, pluginId));
+      }
+    }
+  }
+
+  private static IStatus createErrorStatus(IProject project, Change change, Exception exception, String pluginId) {
+    return new Status(IStatus.ERROR, pluginId, "Could not apply '" + change.command + "' to " + project.getName()
+        + ": " + exception.getLocalizedMessage(), exception);
+  }
+
+  private static void setNatureIds(IProject project, IProjectDescription projectDescription, String[] newNatureIds)
+      throws CoreException {
+    if (!Arrays.equals(projectDescription.getNatureIds(), newNatureIds)) {
+      projectDescription.setNatureIds(newNatureIds);
+      project.setDescription(projectDescription, null);
+    }
+  }
+
+  /**
+   * The change of a single nature.
+   */
+  private static final class Change {
+
+    private final boolean added;
+    private final INatureProjectConfigurationCommand command;
+
+    Change(boolean added, INatureProjectConfigurationCommand command) {
+      this.added = added;
+      this.command = command;
+    }
+
+    void apply(List<String> natureIds, String natureId) {
+      if (!this.added) {
+        natureIds.remove(natureId);
+      } else if (!natureIds.contains(natureId)) {
+        natureIds.add(natureId);
+      }
+    }
+  }
+}
@@ -54,7 +54,7 @@ public class RemoveNatureProjectConfigurationCommand extends AbstractNatureProje
     IStatus status = Status.OK_STATUS;
 
     try {
-      String removeNatureID = getArgumentList().get(1);
+      String removeNatureID = getNatureId();
       if (!projectHasNature(project, removeNatureID)) {
         return status;
       }
@@ -69,4 +69,14 @@ public class RemoveNatureProjectConfigurationCommand extends AbstractNatureProje
     }
     return status;
   }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void collect(NatureChangeSet changeSet) {
+    if (isEnabled()) {
+      changeSet.remove(getNatureId(), this);
+    }
+  }
 }
@@ -12,12 +12,12 @@
  */
 package ch.netcetera.eclipse.projectconfig.core.configurationcommands;
 
-import java.io.File;
 import java.util.List;
 
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.ILog;
-import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 
@@ -50,16 +50,14 @@ public class RmProjectConfigurationCommand extends AbstractProjectConfigurationC
   @Override
   IStatus executeOnProject(IProject project) {
     IStatus status = Status.OK_STATUS;
-    IPath pathToFile = project.getLocation().append(getArgumentList().get(1));
-    File file = pathToFile.toFile();
-    if (file != null && file.exists() && file.isFile()) {
-      try {
-        if (!file.delete()) {
-          status = createStatus(IStatus.ERROR, getTextAccessor().getText("error.rm"));
-        }
-      } catch (SecurityException e) {
-        status = createStatus(IStatus.ERROR, e.getLocalizedMessage(), e);
+    IFile file = project.getFile(getArgumentList().get(1));
+    try {
+      refresh(file);
+      if (file.exists()) {
+        file.delete(true, null);
       }
+    } catch (CoreException e) {
+      status = createStatus(IStatus.ERROR, e.getLocalizedMessage(), e);
     }
     return status;
   }
@@ -12,10 +12,11 @@
  */
 package ch.netcetera.eclipse.projectconfig.core.configurationcommands;
 
-import java.io.File;
 import java.util.List;
 
+import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.ILog;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
@@ -50,14 +51,17 @@ public class RmdirProjectConfigurationCommand extends AbstractProjectConfigurati
   @Override
   IStatus executeOnProject(IProject project) {
     IStatus status = Status.OK_STATUS;
-    IPath pathToDirectory = project.getLocation().append(getArgumentList().get(1));
-    File dirFile = pathToDirectory.toFile();
-    if (dirFile != null && dirFile.exists() && dirFile.isDirectory() && dirFile.list().length == 0) {
+    IFolder folder = project.getFolder(getArgumentList().get(1));
+    IPath location = folder.getLocation();
+    // the files on the file system, the workspace does not know the ones hidden by resource filters
+    String[] names = location != null ? location.toFile().list() : null;
+    if (names != null && names.length == 0) {
       try {
-        if (!dirFile.delete()) {
-          status = createStatus(IStatus.ERROR, getTextAccessor().getText("error.rmdir"));
+        refresh(folder);
+        if (folder.exists()) {
+          folder.delete(true, null);
         }
-      } catch (SecurityException e) {
+      } catch (CoreException e) {
         status = createStatus(IStatus.ERROR, e.getLocalizedMessage(), e);
       }
     }
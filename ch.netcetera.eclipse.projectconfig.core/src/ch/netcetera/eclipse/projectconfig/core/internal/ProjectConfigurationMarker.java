@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.projectconfig.core.internal;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ProjectScope;
+import org.osgi.service.prefs.BackingStoreException;
+import org.osgi.service.prefs.Preferences;
+
+import ch.netcetera.eclipse.projectconfig.core.ProjectConfigurationScript;
+
+/**
+ * Records which configuration scripts have been applied to a project. The records are kept in the
+ * project scoped preferences, one node per script URL holding the URL, the content hash and the
+ * version of the script and the time it was applied at.
+ */
+final class ProjectConfigurationMarker {
+
+  private static final String NODE_SCRIPTS = "scripts";
+  private static final String KEY_URL = "url";
+  private static final String KEY_CONTENT_HASH = "hash";
+  private static final String KEY_VERSION = "version";
+  private static final String KEY_APPLIED = "applied";
+  private static final String ENCODING = "UTF-8";
+
+  private final String qualifier;
+
+  /**
+   * Constructor.
+   *
+   * @param qualifier the qualifier of the project scoped preferences holding the records
+   */
+  ProjectConfigurationMarker(String qualifier) {
+    this.qualifier = qualifier;
+  }
+
+  /**
+   * Finds out whether a script has been applied to a project in its current form.
+   *
+   * @param project the project
+   * @param script the parsed script
+   * @return {@code true} if the project has a record of the script with the same content hash
+   * @throws BackingStoreException if the preferences of the project cannot be read
+   */
+  boolean isApplied(IProject project, ProjectConfigurationScript script) throws BackingStoreException {
+    if (script.getContentHash() == null) {
+      return false;
+    }
+    Preferences scripts = getScriptsNode(project);
+    String name = getNodeName(script.getUrl());
+    if (!scripts.nodeExists(name)) {
+      return false;
+    }
+    Preferences node = scripts.node(name);
+    return script.getUrl().equals(node.get(KEY_URL, null))
+        && script.getContentHash().equals(node.get(KEY_CONTENT_HASH, null));
+  }
+
+  /**
+   * Records that a script has been applied to a project.
+   *
+   * @param project the project
+   * @param script the parsed script
+   * @throws BackingStoreException if the preferences of the project cannot be written
+   */
+  void mark(IProject project, ProjectConfigurationScript script) throws BackingStoreException {
+    Preferences node = getScriptsNode(project).node(getNodeName(script.getUrl()));
+    node.put(KEY_URL, script.getUrl());
+    node.put(KEY_CONTENT_HASH, script.getContentHash());
+    if (script.getVersion() != null) {
+      node.put(KEY_VERSION, script.getVersion());
+    } else {
+      node.remove(KEY_VERSION);
+    }
+    node.putLong(KEY_APPLIED, System.currentTimeMillis());
+    node.flush();
+  }
+
+  private Preferences getScriptsNode(IProject project) {
+    return new ProjectScope(project).getNode(this.qualifier).node(NODE_SCRIPTS);
+  }
+
+  /**
+   * Gets the name of the node of a script. Node names must not contain slashes, the URL is therefore
+   * encoded.
+   *
+   * @param url the URL of the script
+   * @return the node name
+   */
+  private static String getNodeName(String url) {
+    try {
+      return URLEncoder.encode(url, ENCODING);
+    } catch (UnsupportedEncodingException e) {
+      // every Java platform supports UTF-8
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -17,9 +17,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import org.apache.commons.codec.binary.Hex;
 import org.eclipse.core.runtime.ILog;
 
 import ch.netcetera.eclipse.common.io.IOUtil;
@@ -27,6 +31,7 @@ import ch.netcetera.eclipse.common.text.ITextAccessor;
 import ch.netcetera.eclipse.projectconfig.core.ProjectConfigurationScript;
 import ch.netcetera.eclipse.projectconfig.core.configurationcommands.AddNatureProjectConfigurationCommand;
 import ch.netcetera.eclipse.projectconfig.core.configurationcommands.CommentProjectConfigurationCommand;
+import ch.netcetera.eclipse.projectconfig.core.configurationcommands.DownloadCache;
 import ch.netcetera.eclipse.projectconfig.core.configurationcommands.DownloadProjectConfigurationCommand;
 import ch.netcetera.eclipse.projectconfig.core.configurationcommands.IProjectConfigurationCommand;
 import ch.netcetera.eclipse.projectconfig.core.configurationcommands.MkdirProjectConfigurationCommand;
@@ -39,6 +44,12 @@ import ch.netcetera.eclipse.projectconfig.core.configurationcommands.RmdirProjec
  */
 final class ProjectConfigurationParser {
 
+  /** The first element of the lines holding a metadata tag, e.g. <code>@ version 1.1</code>. */
+  private static final String METADATA_PREFIX = "@";
+
+  private static final String DIGEST_ALGORITHM = "SHA-1";
+  private static final Charset CHARSET = Charset.forName("ISO-8859-1");
+
   /**
    * Private default constructor to avoid instantiation.
    */
@@ -59,40 +70,116 @@ final class ProjectConfigurationParser {
    */
   static void parse(ProjectConfigurationScript script, InputStream inputStream,
       ITextAccessor textAccessor, String pluginId, ILog log) throws IOException {
-    List<IProjectConfigurationCommand> commandList = new ArrayList<IProjectConfigurationCommand>();
-
-    Charset charset = Charset.forName("ISO-8859-1");
-    BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, charset));
+    parse(script, readLines(inputStream), textAccessor, pluginId, log);
+  }
 
+  /**
+   * Reads the lines of a configuration script and splits them, see {@link #splitLine(String)}.
+   * Empty lines are left out. The stream is closed.
+   *
+   * @param inputStream the input stream to read from
+   * @return the split lines, not modifiable
+   * @throws IOException on IO errors
+   */
+  static List<List<String>> readLines(InputStream inputStream) throws IOException {
+    List<List<String>> lines = new ArrayList<List<String>>();
+    BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, CHARSET));
     try {
       String line;
       while ((line = bufferedReader.readLine()) != null) {
         List<String> split = splitLine(line);
         if (!split.isEmpty()) {
-          String command = split.get(0);
-          if (command.equals(CommentProjectConfigurationCommand.COMMAND_NAME)) {
-            commandList.add(new CommentProjectConfigurationCommand(split, textAccessor, pluginId, log));
-          } else if (command.equals(DownloadProjectConfigurationCommand.COMMAND_NAME)) {
-            commandList.add(new DownloadProjectConfigurationCommand(split, textAccessor, pluginId, log));
-          } else if (command.equals(MkdirProjectConfigurationCommand.COMMAND_NAME)) {
-            commandList.add(new MkdirProjectConfigurationCommand(split, textAccessor, pluginId, log));
-          } else if (command.equals(RmdirProjectConfigurationCommand.COMMAND_NAME)) {
-            commandList.add(new RmdirProjectConfigurationCommand(split, textAccessor, pluginId, log));
-          } else if (command.equals(RmProjectConfigurationCommand.COMMAND_NAME)) {
-            commandList.add(new RmProjectConfigurationCommand(split, textAccessor, pluginId, log));
-          } else if (command.equals(AddNatureProjectConfigurationCommand.COMMAND_NAME)) {
-            commandList.add(new AddNatureProjectConfigurationCommand(split, textAccessor, pluginId, log));
-          } else if (command.equals(RemoveNatureProjectConfigurationCommand.COMMAND_NAME)) {
-            commandList.add(new RemoveNatureProjectConfigurationCommand(split, textAccessor, pluginId, log));
-          } else {
-            // unknown command: ignore
-          }
+          lines.add(Collections.unmodifiableList(split));
         }
       }
     } finally {
       IOUtil.closeSilently(bufferedReader);
     }
+    return Collections.unmodifiableList(lines);
+  }
+
+  /**
+   * Fills the commands, the metadata and the content hash of the lines of a configuration script
+   * into the script object passed. The commands are created anew on every call, so the lines can be
+   * parsed for several runs of the script.
+   *
+   * @param script the script to add the commands
+   * @param lines the split lines of the script, see {@link #readLines(InputStream)}
+   * @param textAccessor the text accessor
+   * @param pluginId the plugin id
+   * @param log the log
+   */
+  static void parse(ProjectConfigurationScript script, List<List<String>> lines,
+      ITextAccessor textAccessor, String pluginId, ILog log) {
+    List<IProjectConfigurationCommand> commandList = new ArrayList<IProjectConfigurationCommand>();
+    // the download commands of a script share the files downloaded
+    DownloadCache downloadCache = new DownloadCache();
+
+    for (List<String> split : lines) {
+      String command = split.get(0);
+      if (command.equals(METADATA_PREFIX)) {
+        if (split.size() > 1) {
+          script.setMetadata(split.get(1), join(split.subList(2, split.size())));
+        }
+      } else if (command.equals(CommentProjectConfigurationCommand.COMMAND_NAME)) {
+        commandList.add(new CommentProjectConfigurationCommand(split, textAccessor, pluginId, log));
+      } else if (command.equals(DownloadProjectConfigurationCommand.COMMAND_NAME)) {
+        commandList.add(new DownloadProjectConfigurationCommand(split, textAccessor, pluginId, log, downloadCache));
+      } else if (command.equals(MkdirProjectConfigurationCommand.COMMAND_NAME)) {
+        commandList.add(new MkdirProjectConfigurationCommand(split, textAccessor, pluginId, log));
+      } else if (command.equals(RmdirProjectConfigurationCommand.COMMAND_NAME)) {
+        commandList.add(new RmdirProjectConfigurationCommand(split, textAccessor, pluginId, log));
+      } else if (command.equals(RmProjectConfigurationCommand.COMMAND_NAME)) {
+        commandList.add(new RmProjectConfigurationCommand(split, textAccessor, pluginId, log));
+      } else if (command.equals(AddNatureProjectConfigurationCommand.COMMAND_NAME)) {
+        commandList.add(new AddNatureProjectConfigurationCommand(split, textAccessor, pluginId, log));
+      } else if (command.equals(RemoveNatureProjectConfigurationCommand.COMMAND_NAME)) {
+        commandList.add(new RemoveNatureProjectConfigurationCommand(split, textAccessor, pluginId, log));
+      } else {
+        // unknown command: ignore
+      }
+    }
     script.setCommands(commandList);
+    script.setContentHash(hash(lines));
+  }
+
+  /**
+   * Computes the hash of the lines of a script. Comments are included, differences in white space
+   * are not.
+   *
+   * @param lines the split lines of the script
+   * @return the hash
+   */
+  static String hash(List<List<String>> lines) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform supports SHA-1
+      throw new IllegalStateException(e);
+    }
+    for (List<String> line : lines) {
+      digest.update(join(line).getBytes(CHARSET));
+      digest.update((byte) '\n');
+    }
+    return new String(Hex.encodeHex(digest.digest()));
+  }
+
+  /**
+   * Joins the elements passed with a space.
+   *
+   * @param elements the elements
+   * @return the joined elements
+   */
+  private static String join(List<String> elements) {
+    StringBuilder joined = new StringBuilder();
+    for (String element : elements) {
+      if (joined.length() > 0) {
+        joined.append(' ');
+      }
+      joined.append(element);
+    }
+    return joined.toString();
   }
 
   /**
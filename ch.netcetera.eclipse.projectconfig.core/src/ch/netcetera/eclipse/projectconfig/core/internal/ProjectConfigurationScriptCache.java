@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.projectconfig.core.internal;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory cache of the configuration scripts read, keyed by their URL. An entry holds the split
+ * lines of a script, see {@link ProjectConfigurationParser#readLines(java.io.InputStream)}, and is
+ * only used as long as the validator it was stored with still matches: the entity tag of a remote
+ * script, the modification time and size of a local one. Scripts without a validator are not
+ * cached.
+ *
+ * <p>
+ * The lines are cached rather than the parsed scripts: the commands keep state for the duration of
+ * a run and are therefore created anew for every run.
+ * </p>
+ */
+final class ProjectConfigurationScriptCache {
+
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+  /**
+   * Gets the lines of a script.
+   *
+   * @param url the URL of the script
+   * @param validator the current validator of the script, may be {@code null}
+   * @return the lines or {@code null} if the script is not cached or has changed
+   */
+  List<List<String>> get(String url, String validator) {
+    if (validator == null) {
+      return null;
+    }
+    Entry entry = this.entries.get(url);
+    return entry != null && entry.validator.equals(validator) ? entry.lines : null;
+  }
+
+  /**
+   * Stores the lines of a script, replacing the ones stored before.
+   *
+   * @param url the URL of the script
+   * @param validator the validator of the script, if {@code null} the script is removed instead
+   * @param lines the lines of the script
+   */
+  void put(String url, String validator, List<List<String>> lines) {
+    if (validator == null) {
+      this.entries.remove(url);
+    } else {
+      this.entries.put(url, new Entry(validator, lines));
+    }
+  }
+
+  /**
+   * Gets the validator of a local script.
+   *
+   * @param file the script file
+   * @return the validator
+   */
+  static String getValidator(File file) {
+    return file.lastModified() + "/" + file.length();
+  }
+
+  /**
+   * The lines of a script along with the validator they were read with.
+   */
+  private static final class Entry {
+
+    private final String validator;
+    private final List<List<String>> lines;
+
+    /**
+     * Constructor.
+     *
+     * @param validator the validator
+     * @param lines the lines
+     */
+    Entry(String validator, List<List<String>> lines) {
+      this.validator = validator;
+      this.lines = lines;
+    }
+  }
+}
@@ -12,7 +12,6 @@
  */
 package ch.netcetera.eclipse.projectconfig.core.internal;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -20,23 +19,38 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.ILog;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 import org.osgi.framework.FrameworkUtil;
+import org.osgi.service.prefs.BackingStoreException;
 
 import ch.netcetera.eclipse.common.io.IOUtil;
 import ch.netcetera.eclipse.common.text.ITextAccessor;
 import ch.netcetera.eclipse.projectconfig.core.IProjectConfigurationService;
 import ch.netcetera.eclipse.projectconfig.core.ProjectConfigurationScript;
+import ch.netcetera.eclipse.projectconfig.core.configurationcommands.INatureProjectConfigurationCommand;
 import ch.netcetera.eclipse.projectconfig.core.configurationcommands.IProjectConfigurationCommand;
+import ch.netcetera.eclipse.projectconfig.core.configurationcommands.NatureChangeSet;
 import ch.netcetera.eclipse.projectconfig.net.IProjectConfigurationClient;
-import ch.netcetera.eclipse.projectconfig.net.IProjectConfigurationScriptData;
+import ch.netcetera.eclipse.projectconfig.net.IProjectConfigurationScriptStream;
 
 
 /**
@@ -47,6 +61,11 @@ public class ProjectConfigurationService implements IProjectConfigurationService
   private static final String PROTOCOL_PREFIX_FILE = "file";
   private static final String PROTOCOL_PREFIX_HTTP = "http";
 
+  /** The maximum number of projects configured at the same time. */
+  private static final int MAX_CONCURRENT_PROJECTS = Runtime.getRuntime().availableProcessors();
+
+  private final ProjectConfigurationScriptCache scriptCache = new ProjectConfigurationScriptCache();
+
   private volatile IProjectConfigurationClient client;
 
   /**
@@ -74,11 +93,20 @@ public class ProjectConfigurationService implements IProjectConfigurationService
   @Override
   public IStatus runConfigurationScript(List<IProject> projectList, String scriptUrl,
       ITextAccessor textAccessor, String pluginId, ILog log) {
+    return runConfigurationScript(projectList, scriptUrl, true, textAccessor, pluginId, log);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public IStatus runConfigurationScript(List<IProject> projectList, String scriptUrl, boolean force,
+      ITextAccessor textAccessor, String pluginId, ILog log) {
     ProjectConfigurationScript script = new ProjectConfigurationScript(scriptUrl);
     IStatus status = getProjectPropertiesScript(script, textAccessor, pluginId, log);
 
     if (status.isOK()) {
-      status = runScriptOnProjects(projectList, script, textAccessor, pluginId);
+      status = runScriptOnProjects(projectList, script, force, textAccessor, pluginId, log);
     }
     return status;
   }
@@ -96,7 +124,8 @@ public class ProjectConfigurationService implements IProjectConfigurationService
   }
 
   /**
-   * Gets the script file from a local (file://) source and parses it's commands and metadata.
+   * Gets the script file from a local (file://) source and parses it's commands and metadata. The
+   * file is not read again while its modification time and size stay the same.
    *
    * @param script the script object to which the commands and metadata shall be appended
    * @return the status
@@ -110,15 +139,23 @@ public class ProjectConfigurationService implements IProjectConfigurationService
     try {
       File sourceFile = new File(new URI(script.getUrl()));
       if (sourceFile.canRead()) {
-        try {
-          inputStream = new FileInputStream(sourceFile);
-          ProjectConfigurationParser.parse(script, inputStream, textAccessor, pluginId, log);
-        } catch (FileNotFoundException e) {
-          importStatus = wrapExceptionInErrorStatus(e);
-        } catch (SecurityException e) {
-          importStatus = wrapExceptionInErrorStatus(e);
-        } finally {
-          IOUtil.closeSilently(inputStream);
+        String validator = ProjectConfigurationScriptCache.getValidator(sourceFile);
+        List<List<String>> lines = this.scriptCache.get(script.getUrl(), validator);
+        if (lines == null) {
+          try {
+            inputStream = new FileInputStream(sourceFile);
+            lines = ProjectConfigurationParser.readLines(inputStream);
+            this.scriptCache.put(script.getUrl(), validator, lines);
+          } catch (FileNotFoundException e) {
+            importStatus = wrapExceptionInErrorStatus(e);
+          } catch (SecurityException e) {
+            importStatus = wrapExceptionInErrorStatus(e);
+          } finally {
+            IOUtil.closeSilently(inputStream);
+          }
+        }
+        if (lines != null) {
+          ProjectConfigurationParser.parse(script, lines, textAccessor, pluginId, log);
         }
       } else {
         importStatus = new Status(IStatus.ERROR, bundleSymbolicName, "Could not read local file.");
@@ -134,6 +171,9 @@ public class ProjectConfigurationService implements IProjectConfigurationService
 
   /**
    * Gets the script file from a remote (http(s)://) source and parses it's commands and metadata.
+   * The file is revalidated with a conditional request, if the server reports it unchanged the
+   * body is served from the response cache of the client. If the entity tag of the file matches the
+   * one it was last read with, the body is not read at all.
    *
    * @param script the script object to which the commands and metadata shall be appended
    * @return the status
@@ -144,14 +184,21 @@ public class ProjectConfigurationService implements IProjectConfigurationService
     IStatus importStatus = Status.OK_STATUS;
 
     if (this.client != null) {
+      IProjectConfigurationScriptStream file = null;
       try {
-        IProjectConfigurationScriptData file = this.client.getProjectConfiguationScriptFileData(script.getUrl(),
-            new NullProgressMonitor());
-        ProjectConfigurationParser.parse(script, new ByteArrayInputStream(file.getData()), textAccessor, pluginId, log);
+        file = this.client.openProjectConfigurationScriptStream(script.getUrl(), new NullProgressMonitor());
+        List<List<String>> lines = this.scriptCache.get(script.getUrl(), file.getEntityTag());
+        if (lines == null) {
+          lines = ProjectConfigurationParser.readLines(file.getInputStream());
+          this.scriptCache.put(script.getUrl(), file.getEntityTag(), lines);
+        }
+        ProjectConfigurationParser.parse(script, lines, textAccessor, pluginId, log);
       } catch (CoreException e) {
         importStatus = wrapExceptionInErrorStatus(e);
       } catch (IOException e) {
         importStatus = wrapExceptionInErrorStatus(e);
+      } finally {
+        IOUtil.closeSilently(file);
       }
     } else {
       String bundleSymbolicName = FrameworkUtil.getBundle(this.getClass()).getSymbolicName();
@@ -162,30 +209,170 @@ public class ProjectConfigurationService implements IProjectConfigurationService
 
 
   /**
-   * Runs the script passed on the projects passed.
+   * Runs the script passed on the projects passed. Each project is a workspace operation that runs
+   * all commands of the script in order with the project as scheduling rule, the projects are run
+   * concurrently on a bounded pool. Changing the natures of a project configures the natures, which
+   * requires the workspace root as scheduling rule. The nature changes of all projects are therefore
+   * applied afterwards in a single workspace operation with the workspace root as scheduling rule,
+   * see {@link #finishScriptRuns(List, String, ILog)}. Projects the script has already been applied
+   * to in its current form are left out unless forced, see {@link ProjectConfigurationMarker}.
    *
    * @param projectList the projects
    * @param script the script
-   * @return the status
+   * @param force whether to run the script on projects it has already been applied to
+   * @param textAccessor the text accessor
+   * @param pluginId the plugin id
+   * @param log the log
+   * @return the status, a multi status with one child per project that reported a problem
    */
-  private IStatus runScriptOnProjects(List<IProject> projectList, ProjectConfigurationScript script,
-      ITextAccessor textAccessor, String pluginId) {
-    IStatus status = Status.OK_STATUS;
-    if (script != null && script.getCommandList() != null) {
-      boolean statusOK = true;
-      List<IProjectConfigurationCommand> commandList = script.getCommandList();
+  private IStatus runScriptOnProjects(List<IProject> projectList, final ProjectConfigurationScript script,
+      boolean force, final ITextAccessor textAccessor, final String pluginId, final ILog log) {
+    if (script == null || script.getCommandList() == null) {
+      return new Status(IStatus.WARNING, pluginId, textAccessor.getText("error.config"));
+    }
+    final ProjectConfigurationMarker marker =
+        new ProjectConfigurationMarker(FrameworkUtil.getBundle(this.getClass()).getSymbolicName());
+    List<IProject> pendingProjectList = force ? projectList : getPendingProjects(projectList, script, marker);
+    if (pendingProjectList == null || pendingProjectList.isEmpty()) {
+      return Status.OK_STATUS;
+    }
 
-      // run the commands of the script one after another on each projects
+    List<IProjectConfigurationCommand> commandList = script.getCommandList();
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.min(pendingProjectList.size(), MAX_CONCURRENT_PROJECTS), new ProjectThreadFactory());
+    List<Future<ProjectScriptRun>> results = new ArrayList<Future<ProjectScriptRun>>(pendingProjectList.size());
+    List<ProjectScriptRun> scriptRuns = new ArrayList<ProjectScriptRun>(pendingProjectList.size());
+    List<IStatus> problems = new ArrayList<IStatus>();
+    try {
+      for (final IProject project : pendingProjectList) {
+        results.add(executor.submit(new Callable<ProjectScriptRun>() {
+
+          /** {@inheritDoc} */
+          @Override
+          public ProjectScriptRun call() {
+            ProjectScriptRun scriptRun = new ProjectScriptRun(project, script, marker, pluginId, log);
+            runScriptOnProject(scriptRun, pluginId, log);
+            return scriptRun;
+          }
+        }));
+      }
+      for (Future<ProjectScriptRun> result : results) {
+        try {
+          scriptRuns.add(result.get());
+        } catch (ExecutionException e) {
+          problems.add(wrapExceptionInErrorStatus(e.getCause()));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          problems.add(new Status(IStatus.CANCEL, pluginId, textAccessor.getText("error.config")));
+        }
+      }
+      finishScriptRuns(scriptRuns, pluginId, log);
+      for (ProjectScriptRun scriptRun : scriptRuns) {
+        if (!scriptRun.isStatusOK()) {
+          problems.add(new Status(IStatus.WARNING, pluginId,
+              textAccessor.getText("error.config.project", new Object[] {scriptRun.getProject().getName()})));
+        }
+      }
+    } finally {
+      executor.shutdown();
       for (IProjectConfigurationCommand command : commandList) {
-        statusOK &= command.execute(projectList).isOK();
+        command.endRun();
       }
-      if (!statusOK) {
-        status = new Status(IStatus.WARNING, pluginId, textAccessor.getText("error.config"));
+    }
+    if (problems.isEmpty()) {
+      return Status.OK_STATUS;
+    }
+    return new MultiStatus(pluginId, IStatus.OK, problems.toArray(new IStatus[problems.size()]),
+        textAccessor.getText("error.config"), null);
+  }
+
+  /**
+   * Gets the projects the script has not been applied to in its current form yet. Projects whose
+   * record cannot be read are included.
+   *
+   * @param projectList the projects
+   * @param script the script
+   * @param marker the records of the scripts applied
+   * @return the projects to run the script on
+   */
+  private static List<IProject> getPendingProjects(List<IProject> projectList, ProjectConfigurationScript script,
+      ProjectConfigurationMarker marker) {
+    if (projectList == null) {
+      return null;
+    }
+    List<IProject> pendingProjectList = new ArrayList<IProject>(projectList.size());
+    for (IProject project : projectList) {
+      boolean applied;
+      try {
+        applied = marker.isApplied(project, script);
+      } catch (BackingStoreException e) {
+        applied = false;
+      }
+      if (!applied) {
+        pendingProjectList.add(project);
+      }
+    }
+    return pendingProjectList;
+  }
+
+  /**
+   * Runs the commands of a script on a project as a single workspace operation with the project as
+   * scheduling rule, see {@link ProjectScriptRun}. The resource change notifications and the builds
+   * are deferred until the operation has ended, so the project is built once with all changes of the
+   * script instead of after every command. Problems are logged and reported by the script run, the
+   * other projects are run regardless.
+   *
+   * @param scriptRun the run of the script on the project
+   * @param pluginId the plugin id
+   * @param log the log
+   */
+  private static void runScriptOnProject(ProjectScriptRun scriptRun, String pluginId, ILog log) {
+    IProject project = scriptRun.getProject();
+    try {
+      project.getWorkspace().run(scriptRun, project, IWorkspace.AVOID_UPDATE, null);
+    } catch (CoreException e) {
+      log.log(new Status(IStatus.ERROR, pluginId, e.getLocalizedMessage(), e));
+      scriptRun.setFailed();
+    } catch (RuntimeException e) {
+      // e.g. a command asking for a scheduling rule the project does not contain
+      log.log(new Status(IStatus.ERROR, pluginId, "Could not run the script on " + project.getName() + ": "
+          + e.getLocalizedMessage(), e));
+      scriptRun.setFailed();
+    }
+  }
+
+  /**
+   * Applies the nature changes of the script runs and records the script as applied to the projects
+   * it has run on without problems. All projects are finished in a single workspace operation with
+   * the workspace root as scheduling rule, configuring a nature may run code that changes any
+   * resource.
+   *
+   * @param scriptRuns the runs of the script on the projects
+   * @param pluginId the plugin id
+   * @param log the log
+   */
+  private static void finishScriptRuns(final List<ProjectScriptRun> scriptRuns, String pluginId, ILog log) {
+    if (scriptRuns.isEmpty()) {
+      return;
+    }
+    IWorkspace workspace = scriptRuns.get(0).getProject().getWorkspace();
+    try {
+      workspace.run(new IWorkspaceRunnable() {
+
+        /** {@inheritDoc} */
+        @Override
+        public void run(IProgressMonitor monitor) {
+          for (ProjectScriptRun scriptRun : scriptRuns) {
+            scriptRun.finish();
+          }
+        }
+      }, workspace.getRoot(), IWorkspace.AVOID_UPDATE, null);
+    } catch (CoreException e) {
+      log.log(new Status(IStatus.ERROR, pluginId, e.getLocalizedMessage(), e));
+      for (ProjectScriptRun scriptRun : scriptRuns) {
+        scriptRun.setFailed();
       }
-    } else {
-      status = new Status(IStatus.WARNING, pluginId, textAccessor.getText("error.config"));
     }
-    return status;
   }
 
   /**
@@ -199,4 +386,115 @@ public class ProjectConfigurationService implements IProjectConfigurationService
     return new Status(IStatus.ERROR, bundleSymbolicName, t.getLocalizedMessage(), t);
   }
 
+  /**
+   * Workspace operation that runs the commands of a script one after another on a project. The
+   * nature commands are not executed one by one, their net changes are collected and applied with a
+   * single update of the project description by {@link #finish()} once the other commands have run.
+   * If all commands have run without problems, the script is then recorded as applied to the
+   * project.
+   */
+  private static final class ProjectScriptRun implements IWorkspaceRunnable {
+
+    private final IProject project;
+    private final ProjectConfigurationScript script;
+    private final ProjectConfigurationMarker marker;
+    private final String pluginId;
+    private final ILog log;
+    private final NatureChangeSet natureChangeSet = new NatureChangeSet();
+    private boolean statusOK = true;
+
+    /**
+     * Constructor.
+     *
+     * @param project the project
+     * @param script the script
+     * @param marker the records of the scripts applied
+     * @param pluginId the plugin id
+     * @param log the log
+     */
+    ProjectScriptRun(IProject project, ProjectConfigurationScript script, ProjectConfigurationMarker marker,
+        String pluginId, ILog log) {
+      this.project = project;
+      this.script = script;
+      this.marker = marker;
+      this.pluginId = pluginId;
+      this.log = log;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run(IProgressMonitor monitor) throws CoreException {
+      for (IProjectConfigurationCommand command : this.script.getCommandList()) {
+        if (command instanceof INatureProjectConfigurationCommand) {
+          ((INatureProjectConfigurationCommand) command).collect(this.natureChangeSet);
+        } else {
+          this.statusOK &= command.execute(this.project).isOK();
+        }
+      }
+    }
+
+    /**
+     * Applies the nature changes collected and records the script as applied if all commands have
+     * run without problems. The caller must hold the workspace root as scheduling rule.
+     */
+    void finish() {
+      IStatus natureStatus = this.natureChangeSet.applyTo(this.project, this.pluginId);
+      if (!natureStatus.isOK()) {
+        this.log.log(natureStatus);
+        this.statusOK = false;
+      }
+      if (this.statusOK) {
+        try {
+          this.marker.mark(this.project, this.script);
+        } catch (BackingStoreException e) {
+          // the script is run again the next time
+          this.log.log(new Status(IStatus.WARNING, this.pluginId, e.getLocalizedMessage(), e));
+        }
+      }
+    }
+
+    /**
+     * Records that the script could not be run on the project.
+     */
+    void setFailed() {
+      this.statusOK = false;
+    }
+
+    /**
+     * Whether all commands have run without problems.
+     *
+     * @return {@code true} if no command reported a problem
+     */
+    boolean isStatusOK() {
+      return this.statusOK;
+    }
+
+    /**
+     * Gets the project the script runs on.
+     *
+     * @return the project
+     */
+    IProject getProject() {
+      return this.project;
+    }
+  }
+
+  /**
+   * Creates the daemon threads that run the script on the projects.
+   */
+  private static final class ProjectThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    /** {@inheritDoc} */
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "Project configuration " + this.count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
 }
\ No newline at end of file
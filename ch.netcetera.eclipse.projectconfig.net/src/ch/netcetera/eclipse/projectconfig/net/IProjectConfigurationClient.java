@@ -30,4 +30,21 @@ public interface IProjectConfigurationClient {
    */
   IProjectConfigurationScriptData getProjectConfiguationScriptFileData(String url, IProgressMonitor monitor) 
       throws CoreException;
+
+  /**
+   * Opens a stream on the project configuration script file data. Other than
+   * {@link #getProjectConfiguationScriptFileData(String, IProgressMonitor)} this does not read the whole file into
+   * memory, the data is read while it is being transferred.
+   *
+   * <p>
+   * The caller owns the stream returned and must close it, the connection to the server is held until then.
+   * </p>
+   *
+   * @param url the URL of the project configuration script file to get
+   * @param monitor the progress monitor to use
+   * @return the project configuration script file data stream
+   * @throws CoreException on errors
+   */
+  IProjectConfigurationScriptStream openProjectConfigurationScriptStream(String url, IProgressMonitor monitor)
+      throws CoreException;
 }
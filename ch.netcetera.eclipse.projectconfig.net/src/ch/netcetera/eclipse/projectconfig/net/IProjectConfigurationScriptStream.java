@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.projectconfig.net;
+
+import java.io.Closeable;
+import java.io.InputStream;
+
+/**
+ * Interface to entities streaming project configuration script file data. The data is read while it
+ * is still being transferred, the receiver owns the stream and has to close it.
+ */
+public interface IProjectConfigurationScriptStream extends Closeable {
+
+  /**
+   * Gets the stream of the project configuration script file data. Closing the stream returned is
+   * equivalent to closing this instance.
+   *
+   * @return the project configuration script file data stream
+   */
+  InputStream getInputStream();
+
+  /**
+   * Gets the entity tag the server sent with the file. The tag changes whenever the file does, the
+   * file can therefore be recognized without reading it.
+   *
+   * @return the entity tag or {@code null} if the server did not send one
+   */
+  String getEntityTag();
+}
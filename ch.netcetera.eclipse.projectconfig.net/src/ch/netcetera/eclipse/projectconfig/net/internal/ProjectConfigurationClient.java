@@ -24,8 +24,10 @@ import org.osgi.framework.FrameworkUtil;
 
 import ch.netcetera.eclipse.common.io.IOUtil;
 import ch.netcetera.eclipse.common.net.AbstractHttpClient;
+import ch.netcetera.eclipse.common.net.HttpResponseStream;
 import ch.netcetera.eclipse.projectconfig.net.IProjectConfigurationClient;
 import ch.netcetera.eclipse.projectconfig.net.IProjectConfigurationScriptData;
+import ch.netcetera.eclipse.projectconfig.net.IProjectConfigurationScriptStream;
 
 /**
  * HTTP client to fetch project configuration scripts and files.
@@ -52,6 +54,16 @@ public class ProjectConfigurationClient extends AbstractHttpClient implements
     return this.executeGetRequest(url, new PreferenceFileResponseHandler(), monitor);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public IProjectConfigurationScriptStream openProjectConfigurationScriptStream(String url,
+      IProgressMonitor monitor) throws CoreException {
+    HttpResponseStream stream = this.executeStreamingGetRequest(url, monitor);
+    return new ProjectConfigurationScriptStream(stream, stream.getEntityTag());
+  }
+
   /**
    * A response handler that parses the response.
    */
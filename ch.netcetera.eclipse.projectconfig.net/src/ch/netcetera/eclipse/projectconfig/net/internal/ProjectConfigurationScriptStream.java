@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.projectconfig.net.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import ch.netcetera.eclipse.projectconfig.net.IProjectConfigurationScriptStream;
+
+/**
+ * {@link InputStream} backed {@link IProjectConfigurationScriptStream} implementation.
+ */
+public final class ProjectConfigurationScriptStream implements IProjectConfigurationScriptStream {
+
+  private final InputStream inputStream;
+  private final String entityTag;
+
+  /**
+   * Constructor.
+   *
+   * @param inputStream the project configuration script file data stream
+   * @param entityTag the entity tag of the file or {@code null} if the server did not send one
+   */
+  public ProjectConfigurationScriptStream(InputStream inputStream, String entityTag) {
+    this.inputStream = inputStream;
+    this.entityTag = entityTag;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public InputStream getInputStream() {
+    return this.inputStream;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getEntityTag() {
+    return this.entityTag;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() throws IOException {
+    this.inputStream.close();
+  }
+}
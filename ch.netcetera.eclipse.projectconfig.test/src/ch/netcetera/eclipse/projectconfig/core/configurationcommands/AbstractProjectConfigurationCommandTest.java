@@ -170,4 +170,28 @@ public class AbstractProjectConfigurationCommandTest {
     assertNotNull(result);
     assertEquals(IStatus.WARNING, result.getSeverity());
   }
+
+  /**
+   * Tests the execute method on a single project.
+   */
+  @Test
+  public void testExecuteSingleProjectError() {
+    final List<String> arguments = Arrays.asList("a", "b");
+    final IStatus status = new Status(IStatus.ERROR, "a", "message");
+    final ITextAccessor textAccessor = EasyMock.createMock(ITextAccessor.class);
+    EasyMock.replay(textAccessor);
+    final ILog log = EasyMock.createMock(ILog.class);
+    log.log(status);
+    EasyMock.replay(log);
+    final String pluginId = "plugin";
+
+    TestProjectConfigurationCommand command = new TestProjectConfigurationCommand(arguments,
+        textAccessor, pluginId, log, status);
+    final IProject project = EasyMock.createMock(IProject.class);
+    EasyMock.replay(project);
+
+    IStatus result = command.execute(project);
+    assertEquals(status, result);
+    EasyMock.verify(log);
+  }
 }
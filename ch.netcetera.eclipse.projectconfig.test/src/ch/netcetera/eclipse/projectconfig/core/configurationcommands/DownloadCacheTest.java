@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.projectconfig.core.configurationcommands;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link DownloadCache}.
+ */
+public class DownloadCacheTest {
+
+  private DownloadCache cache;
+  private CountingDownloader downloader;
+
+  /**
+   * Initializes the test data.
+   */
+  @Before
+  public void initData() {
+    this.cache = new DownloadCache();
+    this.downloader = new CountingDownloader();
+  }
+
+  /**
+   * Deletes the cached files.
+   */
+  @After
+  public void clearCache() {
+    this.cache.clear();
+  }
+
+  /**
+   * Tests that a URL is downloaded once and that URLs serving the same content share a file.
+   *
+   * @throws IOException on error
+   */
+  @Test
+  public void testDownloadOnce() throws IOException {
+    File first = this.cache.get("http://a/checkstyle.xml", this.downloader);
+    assertEquals(first, this.cache.get("http://a/checkstyle.xml", this.downloader));
+    assertEquals(first, this.cache.get("http://b/checkstyle.xml", this.downloader));
+    assertEquals(Integer.valueOf(1), this.downloader.counts.get("http://a/checkstyle.xml"));
+    assertEquals(Integer.valueOf(1), this.downloader.counts.get("http://b/checkstyle.xml"));
+    assertEquals(7L, first.length());
+  }
+
+  /**
+   * Tests that failed downloads are not repeated.
+   */
+  @Test
+  public void testFailedDownload() {
+    for (int i = 0; i < 2; i++) {
+      try {
+        this.cache.get("http://a/missing.xml", this.downloader);
+        fail("IOException expected");
+      } catch (IOException e) {
+        assertEquals("Not Found", e.getMessage());
+      }
+    }
+    assertEquals(Integer.valueOf(1), this.downloader.counts.get("http://a/missing.xml"));
+  }
+
+  /**
+   * Tests {@link DownloadCache#clear()}.
+   *
+   * @throws IOException on error
+   */
+  @Test
+  public void testClear() throws IOException {
+    File file = this.cache.get("http://a/checkstyle.xml", this.downloader);
+    assertTrue(file.exists());
+    this.cache.clear();
+    assertFalse(file.exists());
+    this.cache.get("http://a/checkstyle.xml", this.downloader);
+    assertEquals(Integer.valueOf(2), this.downloader.counts.get("http://a/checkstyle.xml"));
+  }
+
+  /**
+   * Downloader that counts the downloads of each URL.
+   */
+  private static final class CountingDownloader implements DownloadCache.Downloader {
+
+    private final Map<String, Integer> counts = new HashMap<String, Integer>();
+
+    @Override
+    public synchronized void download(String url, OutputStream output) throws IOException {
+      Integer count = this.counts.get(url);
+      this.counts.put(url, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+      if (url.endsWith("missing.xml")) {
+        throw new IOException("Not Found");
+      }
+      output.write("content".getBytes("ISO-8859-1"));
+    }
+  }
+}
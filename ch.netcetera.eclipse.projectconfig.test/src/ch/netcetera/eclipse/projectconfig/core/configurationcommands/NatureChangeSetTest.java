@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.projectconfig.core.configurationcommands;
+
+import java.util.Arrays;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link NatureChangeSet}.
+ */
+public class NatureChangeSetTest {
+
+  private static final String JAVA = "org.eclipse.jdt.core.javanature";
+  private static final String MAVEN = "org.eclipse.m2e.core.maven2Nature";
+  private static final String CHECKSTYLE = "net.sf.eclipsecs.core.CheckstyleNature";
+  private static final String PMD = "net.sourceforge.pmd.eclipse.plugin.pmdNature";
+  private static final String MISSING = "org.example.missingNature";
+  private static final String PLUGIN_ID = "plugin";
+
+  private IProject project;
+
+  /**
+   * Creates the project the changes are applied to.
+   *
+   * @throws CoreException on error
+   */
+  @Before
+  public void setUp() throws CoreException {
+    this.project = ResourcesPlugin.getWorkspace().getRoot().getProject("NatureChangeSetTest");
+    this.project.create(null);
+    this.project.open(null);
+  }
+
+  /**
+   * Deletes the project.
+   *
+   * @throws CoreException on error
+   */
+  @After
+  public void tearDown() throws CoreException {
+    this.project.delete(true, true, null);
+  }
+
+  /**
+   * Tests that an empty change set does not change the natures.
+   */
+  @Test
+  public void testEmpty() {
+    NatureChangeSet changeSet = new NatureChangeSet();
+    assertTrue(changeSet.isEmpty());
+    assertEquals(Arrays.asList(JAVA, MAVEN), Arrays.asList(changeSet.apply(new String[] {JAVA, MAVEN})));
+  }
+
+  /**
+   * Tests that the natures kept stay in their order and the natures added are appended.
+   */
+  @Test
+  public void testApply() {
+    NatureChangeSet changeSet = new NatureChangeSet();
+    changeSet.add(CHECKSTYLE, addNature(CHECKSTYLE));
+    changeSet.add(JAVA, addNature(JAVA));
+    changeSet.remove(MAVEN, removeNature(MAVEN));
+    changeSet.add(PMD, addNature(PMD));
+    assertEquals(Arrays.asList(JAVA, CHECKSTYLE, PMD),
+        Arrays.asList(changeSet.apply(new String[] {JAVA, MAVEN})));
+  }
+
+  /**
+   * Tests that a later change of a nature replaces an earlier one.
+   */
+  @Test
+  public void testLaterChangeWins() {
+    NatureChangeSet changeSet = new NatureChangeSet();
+    changeSet.add(CHECKSTYLE, addNature(CHECKSTYLE));
+    changeSet.remove(CHECKSTYLE, removeNature(CHECKSTYLE));
+    changeSet.remove(JAVA, removeNature(JAVA));
+    changeSet.add(JAVA, addNature(JAVA));
+    assertEquals(Arrays.asList(JAVA, MAVEN), Arrays.asList(changeSet.apply(new String[] {JAVA, MAVEN})));
+  }
+
+  /**
+   * Tests that the changes are applied one by one to a project if they cannot be applied at once
+   * and that the change failing is reported with its command.
+   *
+   * @throws CoreException on error
+   */
+  @Test
+  public void testApplyToFallsBackToSingleChanges() throws CoreException {
+    NatureChangeSet changeSet = new NatureChangeSet();
+    changeSet.add(TestProjectNature.NATURE_ID, addNature(TestProjectNature.NATURE_ID));
+    changeSet.add(MISSING, addNature(MISSING));
+
+    IStatus status = changeSet.applyTo(this.project, PLUGIN_ID);
+
+    assertEquals(IStatus.ERROR, status.getSeverity());
+    assertEquals(1, status.getChildren().length);
+    assertTrue(status.getChildren()[0].getMessage().startsWith("Could not apply 'addnature " + MISSING + "'"));
+    assertEquals(Arrays.asList(TestProjectNature.NATURE_ID),
+        Arrays.asList(this.project.getDescription().getNatureIds()));
+  }
+
+  /**
+   * Tests that a caller holding only the project as scheduling rule gets an error per change
+   * instead of an exception.
+   *
+   * @throws CoreException on error
+   */
+  @Test
+  public void testApplyToWithinProjectRule() throws CoreException {
+    final NatureChangeSet changeSet = new NatureChangeSet();
+    changeSet.add(TestProjectNature.NATURE_ID, addNature(TestProjectNature.NATURE_ID));
+    final IStatus[] status = new IStatus[1];
+
+    this.project.getWorkspace().run(new IWorkspaceRunnable() {
+
+      @Override
+      public void run(IProgressMonitor monitor) {
+        status[0] = changeSet.applyTo(NatureChangeSetTest.this.project, PLUGIN_ID);
+      }
+    }, this.project, IWorkspace.AVOID_UPDATE, null);
+
+    assertEquals(IStatus.ERROR, status[0].getSeverity());
+    assertEquals(1, status[0].getChildren().length);
+    assertFalse(this.project.hasNature(TestProjectNature.NATURE_ID));
+  }
+
+  private static INatureProjectConfigurationCommand addNature(String natureId) {
+    return new AddNatureProjectConfigurationCommand(Arrays.asList(AddNatureProjectConfigurationCommand.COMMAND_NAME,
+        natureId), null, PLUGIN_ID, null);
+  }
+
+  private static INatureProjectConfigurationCommand removeNature(String natureId) {
+    return new RemoveNatureProjectConfigurationCommand(Arrays.asList(
+        RemoveNatureProjectConfigurationCommand.COMMAND_NAME, natureId), null, PLUGIN_ID, null);
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.projectconfig.core.configurationcommands;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectNature;
+
+/**
+ * Nature that does nothing, contributed by the test fragment to add to and remove from projects.
+ */
+public class TestProjectNature implements IProjectNature {
+
+  /** The ID of the nature. */
+  public static final String NATURE_ID = "ch.netcetera.eclipse.projectconfig.core.testNature";
+
+  private IProject project;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void configure() {
+    // nothing to configure
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void deconfigure() {
+    // nothing to deconfigure
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public IProject getProject() {
+    return this.project;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setProject(IProject project) {
+    this.project = project;
+  }
+}
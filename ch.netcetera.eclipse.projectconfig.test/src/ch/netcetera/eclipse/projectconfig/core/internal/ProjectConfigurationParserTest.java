@@ -12,6 +12,7 @@
  */
 package ch.netcetera.eclipse.projectconfig.core.internal;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
@@ -29,6 +30,7 @@ import ch.netcetera.eclipse.projectconfig.core.configurationcommands.IProjectCon
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
 /**
@@ -74,6 +76,9 @@ public class ProjectConfigurationParserTest {
           // six commands (download is duplicated)
           List<IProjectConfigurationCommand> commands = script.getCommandList();
           assertEquals(6, commands.size());
+          assertEquals("value", script.getMetadata("metadata"));
+          assertEquals(ProjectConfigurationParser.hash(ProjectConfigurationParser.readLines(
+              getClass().getResourceAsStream("test.epcs"))), script.getContentHash());
 
         } finally {
           IOUtil.closeSilently(epcsInputStream);
@@ -82,4 +87,22 @@ public class ProjectConfigurationParserTest {
         fail("Could not open test epcs file.");
       }
   }
+
+  /**
+   * Tests {@link ProjectConfigurationParser#hash(List)}.
+   *
+   * @throws IOException on error
+   */
+  @Test
+  public void testHash() throws IOException {
+    String hash = hash("@ version 1\nmkdir dir\n");
+    assertEquals(hash, hash("@  version 1\n\n  mkdir   dir"));
+    assertFalse(hash.equals(hash("@ version 2\nmkdir dir\n")));
+    assertFalse(hash.equals(hash("mkdir dir\n@ version 1\n")));
+  }
+
+  private static String hash(String script) throws IOException {
+    return ProjectConfigurationParser.hash(
+        ProjectConfigurationParser.readLines(new ByteArrayInputStream(script.getBytes("ISO-8859-1"))));
+  }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.projectconfig.core.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link ProjectConfigurationScriptCache}.
+ */
+public class ProjectConfigurationScriptCacheTest {
+
+  private static final String URL = "http://server/project.epcs";
+
+  private ProjectConfigurationScriptCache cache;
+  private List<List<String>> lines;
+
+  /**
+   * Initializes the test data.
+   */
+  @Before
+  public void initData() {
+    this.cache = new ProjectConfigurationScriptCache();
+    this.lines = Collections.singletonList(Arrays.asList("mkdir", "dir"));
+  }
+
+  /**
+   * Tests that the lines are only returned while the validator matches.
+   */
+  @Test
+  public void testGet() {
+    this.cache.put(URL, "\"v1\"", this.lines);
+    assertSame(this.lines, this.cache.get(URL, "\"v1\""));
+    assertNull(this.cache.get(URL, "\"v2\""));
+    assertNull(this.cache.get(URL, null));
+    assertNull(this.cache.get("http://server/other.epcs", "\"v1\""));
+  }
+
+  /**
+   * Tests that a script without validator replaces the cached one.
+   */
+  @Test
+  public void testPutWithoutValidator() {
+    this.cache.put(URL, "\"v1\"", this.lines);
+    this.cache.put(URL, null, this.lines);
+    assertNull(this.cache.get(URL, "\"v1\""));
+  }
+}
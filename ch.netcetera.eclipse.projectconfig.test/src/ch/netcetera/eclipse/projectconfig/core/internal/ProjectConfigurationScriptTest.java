@@ -26,6 +26,7 @@ import ch.netcetera.eclipse.projectconfig.core.configurationcommands.IProjectCon
 
 import static ch.netcetera.eclipse.projectconfig.core.configurationcommands.PluginIdMatcher.hasPluginId;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -76,4 +77,18 @@ public class ProjectConfigurationScriptTest {
     assertThat(this.script.getCommandList().size(), Is.is(2));
     assertThat(this.script.getCommandList(), IsCollectionContaining.hasItem(hasPluginId("plugin1")));
   }
+
+  /**
+   * Tests {@link ProjectConfigurationScript#setMetadata(String, String)},
+   * {@link ProjectConfigurationScript#getMetadata(String)} and
+   * {@link ProjectConfigurationScript#getVersion()}.
+   */
+  @Test
+  public void testSetGetMetadata() {
+    assertNull(this.script.getVersion());
+    this.script.setMetadata("name", "test EPCS");
+    this.script.setMetadata(ProjectConfigurationScript.SCRIPT_METADATA_KEY_VERSION, "1.1");
+    assertEquals("test EPCS", this.script.getMetadata("name"));
+    assertEquals("1.1", this.script.getVersion());
+  }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.projectconfig.core.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.easymock.EasyMock;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.ILog;
+import org.eclipse.core.runtime.ILogListener;
+import org.eclipse.core.runtime.IStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+import ch.netcetera.eclipse.common.io.IOUtil;
+import ch.netcetera.eclipse.common.text.ITextAccessor;
+import ch.netcetera.eclipse.projectconfig.core.configurationcommands.TestProjectNature;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ProjectConfigurationService} on a project of the workspace.
+ */
+public class ProjectConfigurationServiceTest {
+
+  private static final String PLUGIN_ID = "plugin";
+
+  private final List<IStatus> logged = new ArrayList<IStatus>();
+  private final ILog log = new ILog() {
+
+    @Override
+    public void removeLogListener(ILogListener listener) {
+      // nop
+    }
+
+    @Override
+    public void log(IStatus status) {
+      ProjectConfigurationServiceTest.this.logged.add(status);
+    }
+
+    @Override
+    public Bundle getBundle() {
+      return null;
+    }
+
+    @Override
+    public void addLogListener(ILogListener listener) {
+      // nop
+    }
+  };
+
+  private ITextAccessor textAccessor;
+  private IProject project;
+  private File scriptFile;
+
+  /**
+   * Creates an open project and the file of the script.
+   *
+   * @throws Exception on error
+   */
+  @Before
+  public void setUp() throws Exception {
+    this.textAccessor = EasyMock.createNiceMock(ITextAccessor.class);
+    EasyMock.replay(this.textAccessor);
+    this.project = ResourcesPlugin.getWorkspace().getRoot().getProject("ProjectConfigurationServiceTest");
+    this.project.create(null);
+    this.project.open(null);
+    this.scriptFile = File.createTempFile("script", ".epcs");
+  }
+
+  /**
+   * Deletes the project and the file of the script.
+   *
+   * @throws CoreException on error
+   */
+  @After
+  public void tearDown() throws CoreException {
+    this.project.delete(true, true, null);
+    this.scriptFile.delete();
+  }
+
+  /**
+   * Tests that the nature commands of a script change the natures of a project while the other
+   * commands run under the project as scheduling rule.
+   *
+   * @throws Exception on error
+   */
+  @Test
+  public void testNatureCommands() throws Exception {
+    IStatus status = runScript("mkdir folder\naddnature " + TestProjectNature.NATURE_ID + "\n");
+
+    assertTrue(this.logged.toString(), status.isOK());
+    assertEquals(0, this.logged.size());
+    assertTrue(this.project.getFolder("folder").exists());
+    assertTrue(this.project.hasNature(TestProjectNature.NATURE_ID));
+
+    status = runScript("removenature " + TestProjectNature.NATURE_ID + "\n");
+
+    assertTrue(this.logged.toString(), status.isOK());
+    assertFalse(this.project.hasNature(TestProjectNature.NATURE_ID));
+  }
+
+  private IStatus runScript(String script) throws IOException {
+    OutputStream output = new FileOutputStream(this.scriptFile);
+    try {
+      output.write(script.getBytes("ISO-8859-1"));
+    } finally {
+      IOUtil.closeSilently(output);
+    }
+    return new ProjectConfigurationService().runConfigurationScript(Arrays.asList(this.project),
+        this.scriptFile.toURI().toString(), true, this.textAccessor, PLUGIN_ID, this.log);
+  }
+}
@@ -16,8 +16,6 @@ import java.util.List;
 
 import org.eclipse.core.commands.ExecutionException;
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IResource;
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.ILog;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -36,6 +34,7 @@ public class ProjectConfiurationJob extends Job {
   private final List<IProject> projectList;
   private final String pluginId;
   private final String scriptUrl;
+  private final boolean force;
   private final ILog log;
   private final ITextAccessor textAccessor;
 
@@ -46,15 +45,17 @@ public class ProjectConfiurationJob extends Job {
    * @param pluginId the plug-in id
    * @param projectList the projects to run the configuration script on
    * @param scriptUrl the configuration script file URL
+   * @param force whether to run the script on the projects it has already been applied to as well
    * @param log the log
    * @param textAccessor the text accessor
    */
   public ProjectConfiurationJob(String name, String pluginId, List<IProject> projectList, String scriptUrl,
-      ILog log, ITextAccessor textAccessor) {
+      boolean force, ILog log, ITextAccessor textAccessor) {
     super(name);
     this.pluginId = pluginId;
     this.projectList = projectList;
     this.scriptUrl = scriptUrl;
+    this.force = force;
     this.log = log;
     this.textAccessor = textAccessor;
   }
@@ -83,9 +84,8 @@ public class ProjectConfiurationJob extends Job {
       IProjectConfigurationService service = ProjectConfigurationUIPlugin.getDefault().getProjectConfigurationService();
 
       if (service != null) {
-        status = service.runConfigurationScript(this.projectList, this.scriptUrl, this.textAccessor, this.pluginId,
-            this.log);
-        refreshProjects();
+        status = service.runConfigurationScript(this.projectList, this.scriptUrl, this.force, this.textAccessor,
+            this.pluginId, this.log);
       } else {
         status = new Status(IStatus.ERROR, this.pluginId,
             "ProjectConfiurationJob could not obtain service reference of IProjectConfigurationService");
@@ -93,19 +93,4 @@ public class ProjectConfiurationJob extends Job {
     }
     return status;
   }
-
-  /**
-   * Refreshes all projects.
-   */
-  private void refreshProjects() {
-    if (this.projectList != null) {
-      for (IProject project : this.projectList) {
-        try {
-          project.refreshLocal(IResource.DEPTH_INFINITE, null);
-        } catch (CoreException e) {
-          // don't do anything if the refreshing did not work
-        }
-      }
-    }
-  }
 }
@@ -38,6 +38,12 @@ import ch.netcetera.eclipse.projectconfig.ui.ProjectConfigurationUIPlugin;
  */
 public class RunProjectConfigurationScriptHandler extends AbstractHandler {
 
+  /**
+   * Id of the command parameter that, if {@code true}, runs the script on the projects it has already
+   * been applied to as well.
+   */
+  public static final String PARAMETER_FORCE = "ch.netcetera.eclipse.projectconfig.ui.fetchSettings.force";
+
   /** {@inheritDoc} */
   @Override
   public Object execute(ExecutionEvent event) throws ExecutionException {
@@ -45,10 +51,11 @@ public class RunProjectConfigurationScriptHandler extends AbstractHandler {
     List<IProject> projectList = getProjectsFromSelection(selection);
     if (!projectList.isEmpty()) {
       String scriptUrl = getScriptURL();
+      boolean force = Boolean.parseBoolean(event.getParameter(PARAMETER_FORCE));
 
       Job job = new ProjectConfiurationJob(
           ProjectConfigurationUIPlugin.getDefault().getText("project.config.job.name"),
-          ProjectConfigurationUIPlugin.PLUGIN_ID, projectList, scriptUrl,
+          ProjectConfigurationUIPlugin.PLUGIN_ID, projectList, scriptUrl, force,
           ProjectConfigurationUIPlugin.getDefault().getLog(), ProjectConfigurationUIPlugin.getDefault());
       job.setUser(true);
       job.schedule();
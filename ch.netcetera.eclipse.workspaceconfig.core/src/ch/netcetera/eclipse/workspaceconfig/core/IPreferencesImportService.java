@@ -12,8 +12,10 @@
  */
 package ch.netcetera.eclipse.workspaceconfig.core;
 
+import java.io.File;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 
 /**
@@ -23,11 +25,110 @@ public interface IPreferencesImportService {
   
   /**
    * Imports the configuration file (EPF) located at the URL passed into the workspace. The protocols file:// http:// 
-   * and https:// are supported.
+   * and https:// are supported. Only preferences whose value differs from the current value are written.
    *   
    * @param url the URL of the preference file to import
    * @param systemPropertyReplacementList the system property replacements to do during the import 
-   * @return the status of the import operation
+   * @return the status of the import operation, on success its message reports the number of preferences added,
+   *         changed and left unchanged
    */
   IStatus importConfigFile(String url, List<String> systemPropertyReplacementList); 
+
+  /**
+   * Imports the configuration files (EPF) located at the URLs passed into the workspace. The files are fetched
+   * concurrently and merged in the order of the list, so preferences of later files override the ones of earlier
+   * files. The merged preferences are applied at once, only the preferences whose value differs from the current
+   * value are written. If a server cannot be reached, the local mirror of the remote file is read instead and the
+   * status of the file is a warning. Files that cannot be fetched are left out of the merge. If the monitor is
+   * canceled, nothing is applied.
+   *
+   * @param urlList the URLs of the preference files to import
+   * @param systemPropertyReplacementList the system property replacements to do during the import
+   * @param monitor the progress monitor
+   * @return the status of the import operation, a multi status with one child per URL, on success its message
+   *         reports the number of preferences added, changed and left unchanged
+   */
+  IStatus importConfigFiles(List<String> urlList, List<String> systemPropertyReplacementList,
+      IProgressMonitor monitor);
+
+  /**
+   * Imports the configuration files (EPF) located at the URLs passed into the workspace just like
+   * {@link #importConfigFiles(List, List, IProgressMonitor)}, but only the preferences that pass the key filter.
+   * The preferences filtered are dropped while the files are read.
+   *
+   * @param urlList the URLs of the preference files to import
+   * @param systemPropertyReplacementList the system property replacements to do during the import
+   * @param keyFilter the filter of the preference keys to import
+   * @param monitor the progress monitor
+   * @return the status of the import operation, a multi status with one child per URL
+   */
+  IStatus importConfigFiles(List<String> urlList, List<String> systemPropertyReplacementList,
+      PreferenceKeyFilter keyFilter, IProgressMonitor monitor);
+
+  /**
+   * Imports the configuration files (EPF) located at the URLs passed into the workspace just like
+   * {@link #importConfigFiles(List, List, IProgressMonitor)}, but reads the remote files from the local mirror if
+   * there is one. The local mirror holds the copy of each remote file as it has last been fetched, so the import
+   * does not wait for the server. Callers should revalidate the files with
+   * {@link #importConfigFiles(List, List, IProgressMonitor)} afterwards, which only applies them again if they
+   * have changed.
+   *
+   * @param urlList the URLs of the preference files to import
+   * @param systemPropertyReplacementList the system property replacements to do during the import
+   * @param monitor the progress monitor
+   * @return the status of the import operation, a multi status with one child per URL
+   */
+  IStatus importMirroredConfigFiles(List<String> urlList, List<String> systemPropertyReplacementList,
+      IProgressMonitor monitor);
+
+  /**
+   * Imports the configuration files (EPF) located at the URLs passed into the workspace just like
+   * {@link #importMirroredConfigFiles(List, List, IProgressMonitor)}, but only the preferences that pass the key
+   * filter.
+   *
+   * @param urlList the URLs of the preference files to import
+   * @param systemPropertyReplacementList the system property replacements to do during the import
+   * @param keyFilter the filter of the preference keys to import
+   * @param monitor the progress monitor
+   * @return the status of the import operation, a multi status with one child per URL
+   */
+  IStatus importMirroredConfigFiles(List<String> urlList, List<String> systemPropertyReplacementList,
+      PreferenceKeyFilter keyFilter, IProgressMonitor monitor);
+
+  /**
+   * Fetches the remote configuration files (EPF) located at the URLs passed into the local mirror without importing
+   * them, so a later {@link #importMirroredConfigFiles(List, List, PreferenceKeyFilter, IProgressMonitor)} does not
+   * wait for the servers. The files are fetched concurrently with conditional requests, files that have not changed
+   * are not downloaded again. Local files are skipped, and so are all files if there is no local mirror to keep them
+   * in. If the monitor is canceled, the downloads in flight are aborted.
+   *
+   * @param urlList the URLs of the preference files to fetch
+   * @param monitor the progress monitor
+   * @return the status of the fetch operation, a multi status with one child per URL
+   */
+  IStatus prefetchConfigFiles(List<String> urlList, IProgressMonitor monitor);
+
+  /**
+   * Provisions workspaces that are not running with the configuration files (EPF) located at the URLs passed. The
+   * files are fetched concurrently, once for all workspaces, and merged in the order of the list just like
+   * {@link #importConfigFiles(List, List, PreferenceKeyFilter, IProgressMonitor)}. The instance scope preferences of
+   * the merged configuration are then written into the metadata of each workspace, only the ones whose value differs
+   * from the value the workspace has. Configuration scope preferences belong to the installation rather than to a
+   * workspace and are left out. Workspaces that do not exist are created, workspaces in use are skipped. If not all
+   * files can be fetched or the merged files cannot be read, no workspace is provisioned and the status is an
+   * error. If the monitor is canceled, the workspaces not provisioned yet are left alone.
+   *
+   * @param workspaceList the root directories of the workspaces
+   * @param urlList the URLs of the preference files to provision the workspaces with
+   * @param systemPropertyReplacementList the system property replacements to do while the files are read
+   * @param keyFilter the filter of the preference keys to provision
+   * @param parallelism the maximum number of workspaces written at the same time
+   * @param monitor the progress monitor
+   * @return the status of the provisioning, a multi status with one child per URL followed by one child per
+   *         workspace, the message of a workspace child reports the number of preferences added, changed and left
+   *         unchanged
+   */
+  IStatus provisionWorkspaces(List<File> workspaceList, List<String> urlList,
+      List<String> systemPropertyReplacementList, PreferenceKeyFilter keyFilter, int parallelism,
+      IProgressMonitor monitor);
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.workspaceconfig.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Limits the preferences imported from a configuration file to the keys matching key patterns.
+ *
+ * <p>
+ * A key pattern is a prefix of the node path and key of a preference, separated by a slash and
+ * without the scope, e.g. <code>org.eclipse.jdt.core/org.eclipse.jdt.core.formatter.</code> matches
+ * all formatter preferences of the JDT core node and <code>org.eclipse.jdt.</code> matches all keys
+ * of all JDT nodes. A trailing <code>*</code> is ignored. A preference is imported if it matches an
+ * include pattern, or if there are no include patterns, and if it does not match an exclude pattern.
+ * </p>
+ */
+public final class PreferenceKeyFilter {
+
+  /** The filter that imports all preferences. */
+  public static final PreferenceKeyFilter NONE = new PreferenceKeyFilter(Collections.<String>emptyList(),
+      Collections.<String>emptyList());
+
+  private final List<String> includePatterns;
+  private final List<String> excludePatterns;
+
+  /**
+   * Constructor.
+   *
+   * @param includePatterns the patterns of the keys to import, empty to import all keys
+   * @param excludePatterns the patterns of the keys not to import
+   */
+  public PreferenceKeyFilter(List<String> includePatterns, List<String> excludePatterns) {
+    this.includePatterns = normalize(includePatterns);
+    this.excludePatterns = normalize(excludePatterns);
+  }
+
+  private static List<String> normalize(List<String> patterns) {
+    List<String> normalized = new ArrayList<String>(patterns.size());
+    for (String pattern : patterns) {
+      String trimmed = pattern.trim();
+      if (trimmed.endsWith("*")) {
+        trimmed = trimmed.substring(0, trimmed.length() - 1);
+      }
+      if (trimmed.startsWith("/")) {
+        trimmed = trimmed.substring(1);
+      }
+      if (!trimmed.isEmpty() && !normalized.contains(trimmed)) {
+        normalized.add(trimmed);
+      }
+    }
+    Collections.sort(normalized);
+    return Collections.unmodifiableList(normalized);
+  }
+
+  /**
+   * Gets the patterns of the keys to import.
+   *
+   * @return the include patterns, sorted and without the trailing <code>*</code>
+   */
+  public List<String> getIncludePatterns() {
+    return this.includePatterns;
+  }
+
+  /**
+   * Gets the patterns of the keys not to import.
+   *
+   * @return the exclude patterns, sorted and without the trailing <code>*</code>
+   */
+  public List<String> getExcludePatterns() {
+    return this.excludePatterns;
+  }
+
+  /**
+   * Finds out whether this filter imports all preferences.
+   *
+   * @return {@code true} if there are neither include nor exclude patterns
+   */
+  public boolean isEmpty() {
+    return this.includePatterns.isEmpty() && this.excludePatterns.isEmpty();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return "include " + this.includePatterns + ", exclude " + this.excludePatterns;
+  }
+}
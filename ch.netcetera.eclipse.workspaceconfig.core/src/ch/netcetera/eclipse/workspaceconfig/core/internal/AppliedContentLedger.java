@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.workspaceconfig.core.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import ch.netcetera.eclipse.common.io.IOUtil;
+
+/**
+ * Records what has been applied for each configuration file URL: the hash of the content after the
+ * placeholder substitution, the validator of the source (entity tag or file time stamp), the
+ * fingerprint of the system property values substituted and the fingerprint of the sources it was
+ * merged with. The sources are ordered, the later ones override the earlier ones, so the same files
+ * merged in another order do not count as applied.
+ *
+ * <p>
+ * The ledger is kept in a properties file in the state location of the bundle rather than in the
+ * instance preferences, this keeps it out of preference exports.
+ * </p>
+ */
+final class AppliedContentLedger {
+
+  private static final String SUFFIX_URL = ".url";
+  private static final String SUFFIX_HASH = ".hash";
+  private static final String SUFFIX_VALIDATOR = ".validator";
+  private static final String SUFFIX_REPLACEMENTS = ".replacements";
+  private static final String SUFFIX_APPLIED = ".applied";
+  private static final String SUFFIX_SOURCES = ".sources";
+
+  private final File file;
+  private final Properties entries = new Properties();
+  private boolean dirty;
+
+  /**
+   * Constructor. Loads the ledger from the file passed if it exists.
+   *
+   * @param file the file the ledger is kept in
+   */
+  AppliedContentLedger(File file) {
+    this.file = file;
+    if (file.isFile()) {
+      InputStream input = null;
+      try {
+        input = new FileInputStream(file);
+        this.entries.load(input);
+      } catch (IOException e) {
+        // start over with an empty ledger, the worst case is that files are applied once more
+        this.entries.clear();
+      } finally {
+        IOUtil.closeSilently(input);
+      }
+    }
+  }
+
+  /**
+   * Checks whether the source of an URL is known to be unchanged since it has last been applied,
+   * without looking at its content.
+   *
+   * @param url the URL
+   * @param validator the validator of the source, may be {@code null}
+   * @param replacements the fingerprint of the system property values
+   * @param sources the fingerprint of the sources merged, see {@link #getSourcesFingerprint(List)}
+   * @return {@code true} if the source has already been applied
+   */
+  synchronized boolean isUnchanged(String url, String validator, String replacements, String sources) {
+    String key = getKey(url);
+    return validator != null
+        && url.equals(this.entries.getProperty(key + SUFFIX_URL))
+        && validator.equals(this.entries.getProperty(key + SUFFIX_VALIDATOR))
+        && replacements.equals(this.entries.getProperty(key + SUFFIX_REPLACEMENTS))
+        && sources.equals(this.entries.getProperty(key + SUFFIX_SOURCES));
+  }
+
+  /**
+   * Checks whether the content of an URL has already been applied.
+   *
+   * @param url the URL
+   * @param hash the hash of the content after the placeholder substitution
+   * @param sources the fingerprint of the sources merged, see {@link #getSourcesFingerprint(List)}
+   * @return {@code true} if the content has already been applied
+   */
+  synchronized boolean isApplied(String url, String hash, String sources) {
+    String key = getKey(url);
+    return url.equals(this.entries.getProperty(key + SUFFIX_URL))
+        && hash.equals(this.entries.getProperty(key + SUFFIX_HASH))
+        && sources.equals(this.entries.getProperty(key + SUFFIX_SOURCES));
+  }
+
+  /**
+   * Records the content applied for an URL.
+   *
+   * @param url the URL
+   * @param hash the hash of the content after the placeholder substitution
+   * @param validator the validator of the source, may be {@code null}
+   * @param replacements the fingerprint of the system property values
+   * @param sources the fingerprint of the sources merged, see {@link #getSourcesFingerprint(List)}
+   */
+  synchronized void record(String url, String hash, String validator, String replacements, String sources) {
+    String key = getKey(url);
+    this.entries.setProperty(key + SUFFIX_URL, url);
+    this.entries.setProperty(key + SUFFIX_HASH, hash);
+    this.entries.setProperty(key + SUFFIX_REPLACEMENTS, replacements);
+    this.entries.setProperty(key + SUFFIX_SOURCES, sources);
+    this.entries.setProperty(key + SUFFIX_APPLIED, Long.toString(System.currentTimeMillis()));
+    if (validator != null) {
+      this.entries.setProperty(key + SUFFIX_VALIDATOR, validator);
+    } else {
+      this.entries.remove(key + SUFFIX_VALIDATOR);
+    }
+    this.dirty = true;
+  }
+
+  /**
+   * Writes the ledger to its file if it has been changed.
+   *
+   * @throws IOException if the file cannot be written
+   */
+  synchronized void save() throws IOException {
+    if (!this.dirty) {
+      return;
+    }
+    File directory = this.file.getParentFile();
+    if (directory != null && !directory.isDirectory()) {
+      directory.mkdirs();
+    }
+    OutputStream output = new FileOutputStream(this.file);
+    try {
+      this.entries.store(output, null);
+      this.dirty = false;
+    } finally {
+      IOUtil.closeSilently(output);
+    }
+  }
+
+  /**
+   * Gets the fingerprint of the sources merged into one configuration.
+   *
+   * @param urlList the URLs of the sources in the order they are merged in
+   * @return the fingerprint
+   */
+  static String getSourcesFingerprint(List<String> urlList) {
+    StringBuilder sources = new StringBuilder();
+    for (String url : urlList) {
+      sources.append(url).append('\n');
+    }
+    return DigestUtils.shaHex(sources.toString());
+  }
+
+  private static String getKey(String url) {
+    return DigestUtils.shaHex(url);
+  }
+}
@@ -12,56 +12,57 @@
  */
 package ch.netcetera.eclipse.workspaceconfig.core.internal;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 
-import ch.netcetera.eclipse.common.io.IOUtil;
-
 
 /**
  * {@link InputStream} that reads the input line-wise from another {@link InputStream}
  * and allows call-back in the form of an {@link IReplacer} instance to
  * manipulate the contents before they get passed on.
+ *
+ * <p>
+ * The input is read lazily, one line at a time, so only the current line is held in memory. The
+ * input is expected to be ISO-8859-1 encoded, which maps every byte to exactly one character. Line
+ * terminators (<code>\n</code>, <code>\r</code> or <code>\r\n</code>) are normalized to
+ * <code>\n</code> and the last line is always terminated.
+ * </p>
  */
 public class BufferedReplacementInputStream extends InputStream {
 
   private static final Charset ENCODING = Charset.forName("ISO-8859-1");
-  private final StringBuffer buffer = new StringBuffer(); // NOPMD pellaton 2010-11-23 ok
-  private int pos = 0;
+  private static final int BUFFER_SIZE = 1024 * 8;
+
   private final IReplacer replacer;
+  private final InputStream stream;
+
+  private final byte[] input = new byte[BUFFER_SIZE];
+  private int inputPosition;
+  private int inputLimit;
+  private boolean skipLineFeed;
+
+  private byte[] line = new byte[256];
+  private byte[] output = this.line;
+  private int outputPosition;
+  private int outputLimit;
 
   /**
    * Constructor.
    *
-   * @param replacer the {@link IReplacer} instance to use
-   * @param stream the stream to read the data from
-   * @throws IOException on reading errors
+   * @param replacer the {@link IReplacer} instance to use, may be {@code null}
+   * @param stream the stream to read the data from, may be {@code null}
    */
-  public BufferedReplacementInputStream(IReplacer replacer, InputStream stream) throws IOException {
+  public BufferedReplacementInputStream(IReplacer replacer, InputStream stream) {
     this.replacer = replacer;
-    if (stream != null) {
-      BufferedReader reader = new BufferedReader(new InputStreamReader(stream, ENCODING));
-      try {
-        String line = reader.readLine();
-        while (line != null) {
-          this.buffer.append(replace(line));
-          this.buffer.append('\n');
-          line = reader.readLine();
-        }
-      } finally {
-        IOUtil.closeSilently(reader);
-      }
-    }
+    this.stream = stream;
   }
 
   /**
    * Does the call-back to the {@link IReplacer} instance if set.
    *
    * @param line the line to pass on to the {@link IReplacer}
-   * @return the new line
+   * @return the new line or {@code null} if the line is dropped
    */
   private String replace(String line) {
     if (this.replacer != null) {
@@ -70,15 +71,151 @@ public class BufferedReplacementInputStream extends InputStream {
     return line;
   }
 
+  /**
+   * Reads the next line from the underlying stream and makes it, after the replacements, the
+   * current output. Lines dropped by the {@link IReplacer} are skipped.
+   *
+   * @return {@code false} if the end of the underlying stream has been reached
+   * @throws IOException on reading errors
+   */
+  private boolean nextLine() throws IOException {
+    int length = readLine();
+    while (length >= 0) {
+      if (this.replacer == null) {
+        if (length == this.line.length) {
+          byte[] newLine = new byte[length + 1];
+          System.arraycopy(this.line, 0, newLine, 0, length);
+          this.line = newLine;
+        }
+        this.line[length] = '\n';
+        this.output = this.line;
+        this.outputLimit = length + 1;
+        this.outputPosition = 0;
+        return true;
+      }
+      String replaced = replace(new String(this.line, 0, length, ENCODING));
+      if (replaced != null) {
+        this.output = (replaced + '\n').getBytes(ENCODING);
+        this.outputLimit = this.output.length;
+        this.outputPosition = 0;
+        return true;
+      }
+      length = readLine();
+    }
+    return false;
+  }
+
+  /**
+   * Reads the next line from the underlying stream into the line buffer, without the line
+   * terminator.
+   *
+   * @return the length of the line or {@code -1} if the end of the underlying stream has been
+   *         reached
+   * @throws IOException on reading errors
+   */
+  private int readLine() throws IOException {
+    int length = 0;
+    boolean lineRead = false;
+    boolean endOfLine = false;
+    while (!endOfLine) {
+      if (this.inputPosition == this.inputLimit && !fillInput()) {
+        break;
+      }
+      byte b = this.input[this.inputPosition++];
+      if (this.skipLineFeed) {
+        this.skipLineFeed = false;
+        if (b == '\n') {
+          continue;
+        }
+      }
+      lineRead = true;
+      if (b == '\n') {
+        endOfLine = true;
+      } else if (b == '\r') {
+        endOfLine = true;
+        this.skipLineFeed = true;
+      } else {
+        if (length == this.line.length) {
+          byte[] newLine = new byte[length * 2];
+          System.arraycopy(this.line, 0, newLine, 0, length);
+          this.line = newLine;
+        }
+        this.line[length++] = b;
+      }
+    }
+    return lineRead ? length : -1;
+  }
+
+  private boolean fillInput() throws IOException {
+    if (this.stream == null) {
+      return false;
+    }
+    int read = this.stream.read(this.input, 0, this.input.length);
+    while (read == 0) {
+      read = this.stream.read(this.input, 0, this.input.length);
+    }
+    this.inputPosition = 0;
+    this.inputLimit = Math.max(read, 0);
+    return read > 0;
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
   public int read() throws IOException {
-    if (this.pos < this.buffer.length()) {
-      return this.buffer.codePointAt(this.pos++);
-    } else {
+    if (this.outputPosition == this.outputLimit && !nextLine()) {
       return -1;
     }
+    return this.output[this.outputPosition++] & 0xff;
+  }
+
+  /**
+   * Reads up to {@code len} bytes. Other than most streams this only returns less than {@code len}
+   * bytes if the end of the stream has been reached.
+   *
+   * @param b the buffer to read into
+   * @param off the offset in the buffer to start writing at
+   * @param len the maximum number of bytes to read
+   * @return the number of bytes read or {@code -1} at the end of the stream
+   * @throws IOException on reading errors
+   */
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (off < 0 || len < 0 || len > b.length - off) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (len == 0) {
+      return 0;
+    }
+    int read = 0;
+    while (read < len) {
+      if (this.outputPosition == this.outputLimit && !nextLine()) {
+        break;
+      }
+      int chunk = Math.min(len - read, this.outputLimit - this.outputPosition);
+      System.arraycopy(this.output, this.outputPosition, b, off + read, chunk);
+      this.outputPosition += chunk;
+      read += chunk;
+    }
+    return read == 0 ? -1 : read;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int available() {
+    return this.outputLimit - this.outputPosition;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.stream != null) {
+      this.stream.close();
+    }
   }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.workspaceconfig.core.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.eclipse.core.runtime.IStatus;
+
+/**
+ * A configuration file that has been fetched but not yet applied. The owner has to close it.
+ */
+final class FetchedConfigFile implements Closeable {
+
+  private final InputStream inputStream;
+  private final String validator;
+  private final IStatus mirrorStatus;
+
+  /**
+   * Constructor for a configuration file fetched from its source.
+   *
+   * @param inputStream the content of the configuration file
+   * @param validator a value that changes whenever the source of the configuration file changes, e.g.
+   *          the entity tag, or {@code null} if there is none
+   */
+  FetchedConfigFile(InputStream inputStream, String validator) {
+    this(inputStream, validator, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param inputStream the content of the configuration file
+   * @param validator a value that changes whenever the source of the configuration file changes, e.g.
+   *          the entity tag, or {@code null} if there is none
+   * @param mirrorStatus the status telling why the configuration file has been read from the local
+   *          mirror or {@code null} if it has been fetched from its source
+   */
+  FetchedConfigFile(InputStream inputStream, String validator, IStatus mirrorStatus) {
+    this.inputStream = inputStream;
+    this.validator = validator;
+    this.mirrorStatus = mirrorStatus;
+  }
+
+  /**
+   * Gets the content of the configuration file.
+   *
+   * @return the content
+   */
+  InputStream getInputStream() {
+    return this.inputStream;
+  }
+
+  /**
+   * Gets the validator of the source of the configuration file.
+   *
+   * @return the validator or {@code null} if there is none
+   */
+  String getValidator() {
+    return this.validator;
+  }
+
+  /**
+   * Gets the status telling why the configuration file has been read from the local mirror. The
+   * status is a warning if the source could not be reached.
+   *
+   * @return the status or {@code null} if the configuration file has been fetched from its source
+   */
+  IStatus getMirrorStatus() {
+    return this.mirrorStatus;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() throws IOException {
+    this.inputStream.close();
+  }
+}
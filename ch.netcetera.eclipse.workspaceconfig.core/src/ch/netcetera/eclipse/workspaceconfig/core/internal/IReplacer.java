@@ -23,7 +23,7 @@ public interface IReplacer {
    * Does replacements on the String passed and returns the changed string. 
    * 
    * @param line the original string
-   * @return the string after the replacements
+   * @return the string after the replacements or {@code null} to drop the line
    */
   String replace(String line); 
 }
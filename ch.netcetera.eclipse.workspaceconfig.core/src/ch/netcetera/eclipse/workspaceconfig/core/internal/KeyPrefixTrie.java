@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.workspaceconfig.core.internal;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prefix tree of a set of key prefixes. Finding out whether a key starts with one of the prefixes
+ * takes at most one step per character of the key, independent of the number of prefixes.
+ */
+final class KeyPrefixTrie {
+
+  private final Node root = new Node();
+  private final boolean empty;
+
+  /**
+   * Constructor.
+   *
+   * @param prefixes the prefixes, empty prefixes are ignored
+   */
+  KeyPrefixTrie(List<String> prefixes) {
+    boolean added = false;
+    for (String prefix : prefixes) {
+      if (prefix.length() == 0) {
+        continue;
+      }
+      Node node = this.root;
+      for (int i = 0; i < prefix.length(); i++) {
+        node = node.getOrAddChild(prefix.charAt(i));
+      }
+      node.terminal = true;
+      added = true;
+    }
+    this.empty = !added;
+  }
+
+  /**
+   * Finds out whether the trie holds any prefixes.
+   *
+   * @return {@code true} if there are no prefixes
+   */
+  boolean isEmpty() {
+    return this.empty;
+  }
+
+  /**
+   * Finds out whether a key starts with one of the prefixes.
+   *
+   * @param key the key
+   * @return {@code true} if one of the prefixes is a prefix of the key
+   */
+  boolean matches(CharSequence key) {
+    Node node = this.root;
+    for (int i = 0; i < key.length(); i++) {
+      node = node.getChild(key.charAt(i));
+      if (node == null) {
+        return false;
+      }
+      if (node.terminal) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A node of the trie.
+   */
+  private static final class Node {
+
+    private Map<Character, Node> children;
+    private boolean terminal;
+
+    Node getChild(char c) {
+      return this.children == null ? null : this.children.get(Character.valueOf(c));
+    }
+
+    Node getOrAddChild(char c) {
+      if (this.children == null) {
+        this.children = new HashMap<Character, Node>(4);
+      }
+      Character key = Character.valueOf(c);
+      Node child = this.children.get(key);
+      if (child == null) {
+        child = new Node();
+        this.children.put(key, child);
+      }
+      return child;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.workspaceconfig.core.internal;
+
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.IExportedPreferences;
+import org.osgi.service.prefs.BackingStoreException;
+import org.osgi.service.prefs.Preferences;
+
+/**
+ * The delta between an imported preference tree and the live preferences.
+ *
+ * <p>
+ * Computing the delta strips all keys from the imported tree whose value equals the live value, so
+ * applying the tree afterwards only writes keys that are added or changed and preference change
+ * listeners only fire for those. Nodes that are export roots are left alone, applying them replaces
+ * the live node as a whole.
+ * </p>
+ */
+final class PreferenceDelta {
+
+  private int added;
+  private int changed;
+  private int unchanged;
+
+  /**
+   * Constructor of an empty delta, use {@link #strip(IExportedPreferences, IEclipsePreferences, String[])}
+   * for the delta of a preference tree or {@link #count(String, String)} to compute a delta key by key.
+   */
+  PreferenceDelta() {
+    // empty
+  }
+
+  /**
+   * Counts a single key of the delta.
+   *
+   * @param liveValue the live value or {@code null} if the key does not exist yet
+   * @param importedValue the imported value
+   * @return {@code true} if the key is added or changed, i.e. if it has to be written
+   */
+  boolean count(String liveValue, String importedValue) {
+    if (liveValue == null) {
+      this.added++;
+      return true;
+    } else if (liveValue.equals(importedValue)) {
+      this.unchanged++;
+      return false;
+    }
+    this.changed++;
+    return true;
+  }
+
+  /**
+   * Computes the delta between the imported tree and the live preferences and strips the unchanged
+   * keys from the imported tree.
+   *
+   * @param imported the imported preferences, modified by this method
+   * @param liveRoot the root node of the live preferences
+   * @param scopes the scopes to compare
+   * @return the delta
+   * @throws BackingStoreException if the preferences cannot be accessed
+   */
+  static PreferenceDelta strip(IExportedPreferences imported, IEclipsePreferences liveRoot, String[] scopes)
+      throws BackingStoreException {
+    PreferenceDelta delta = new PreferenceDelta();
+    for (String scope : scopes) {
+      if (imported.nodeExists(scope)) {
+        delta.strip(imported.node(scope), liveRoot);
+      }
+    }
+    return delta;
+  }
+
+  private void strip(Preferences importedNode, IEclipsePreferences liveRoot) throws BackingStoreException {
+    if (importedNode instanceof IExportedPreferences && ((IExportedPreferences) importedNode).isExportRoot()) {
+      countAll(importedNode);
+      return;
+    }
+
+    String path = importedNode.absolutePath();
+    Preferences liveNode = liveRoot.nodeExists(path) ? liveRoot.node(path) : null;
+    for (String key : importedNode.keys()) {
+      String liveValue = liveNode != null ? liveNode.get(key, null) : null;
+      if (!count(liveValue, importedNode.get(key, null))) {
+        importedNode.remove(key);
+      }
+    }
+    for (String child : importedNode.childrenNames()) {
+      strip(importedNode.node(child), liveRoot);
+    }
+  }
+
+  private void countAll(Preferences importedNode) throws BackingStoreException {
+    this.changed += importedNode.keys().length;
+    for (String child : importedNode.childrenNames()) {
+      countAll(importedNode.node(child));
+    }
+  }
+
+  /**
+   * Gets the number of keys that do not exist in the live preferences yet.
+   *
+   * @return the number of added keys
+   */
+  int getAddedCount() {
+    return this.added;
+  }
+
+  /**
+   * Gets the number of keys whose value differs from the live value.
+   *
+   * @return the number of changed keys
+   */
+  int getChangedCount() {
+    return this.changed;
+  }
+
+  /**
+   * Gets the number of keys whose value equals the live value.
+   *
+   * @return the number of unchanged keys
+   */
+  int getUnchangedCount() {
+    return this.unchanged;
+  }
+
+  /**
+   * Checks whether applying the imported tree would change anything.
+   *
+   * @return {@code true} if no key is added or changed
+   */
+  boolean isEmpty() {
+    return this.added == 0 && this.changed == 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return this.added + " added, " + this.changed + " changed, " + this.unchanged + " unchanged";
+  }
+}
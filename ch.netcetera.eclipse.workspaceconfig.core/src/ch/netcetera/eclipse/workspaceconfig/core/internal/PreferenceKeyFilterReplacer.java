@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.workspaceconfig.core.internal;
+
+import org.eclipse.core.runtime.preferences.ConfigurationScope;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+
+import ch.netcetera.eclipse.workspaceconfig.core.PreferenceKeyFilter;
+
+/**
+ * {@link IReplacer} that drops the preferences of a configuration file not matching a
+ * {@link PreferenceKeyFilter} while the file is read, so the preferences filtered never reach the
+ * preferences service. The lines kept are passed on to another {@link IReplacer}.
+ *
+ * <p>
+ * Comments and lines that are not preferences, e.g. the export version and the bundle versions,
+ * are kept. The export root markers are dropped, applying them would remove the preferences of a
+ * whole node, including the ones filtered. Instances keep track of continuation lines, so an
+ * instance must only be used for one stream at a time.
+ * </p>
+ */
+public class PreferenceKeyFilterReplacer implements IReplacer {
+
+  private static final String[] SCOPE_PREFIXES = {
+    '/' + InstanceScope.SCOPE + '/', '/' + ConfigurationScope.SCOPE + '/'};
+  private static final char EXPORT_ROOT_PREFIX = '!';
+
+  private final IReplacer delegate;
+  private final KeyPrefixTrie includes;
+  private final KeyPrefixTrie excludes;
+
+  private boolean continued;
+  private boolean continuedKept;
+
+  /**
+   * Constructor.
+   *
+   * @param filter the filter
+   * @param delegate the {@link IReplacer} to pass the lines kept on to, may be {@code null}
+   */
+  public PreferenceKeyFilterReplacer(PreferenceKeyFilter filter, IReplacer delegate) {
+    this.delegate = delegate;
+    this.includes = new KeyPrefixTrie(filter.getIncludePatterns());
+    this.excludes = new KeyPrefixTrie(filter.getExcludePatterns());
+  }
+
+  /**
+   * Passes the line on to the delegate if it is kept.
+   *
+   * @param line the original line
+   * @return the line after the replacements of the delegate or {@code null} if the line is dropped
+   */
+  @Override
+  public String replace(String line) {
+    boolean kept;
+    if (this.continued) {
+      kept = this.continuedKept;
+      this.continued = endsWithContinuation(line);
+    } else {
+      int start = skipWhitespace(line, 0);
+      if (start == line.length() || line.charAt(start) == '#' || line.charAt(start) == EXPORT_ROOT_PREFIX) {
+        // blank lines and comments never continue
+        kept = true;
+      } else {
+        kept = isKept(unescapeKey(line, start));
+        this.continued = endsWithContinuation(line);
+      }
+    }
+    this.continuedKept = kept;
+    if (!kept) {
+      return null;
+    }
+    return this.delegate == null ? line : this.delegate.replace(line);
+  }
+
+  private boolean isKept(String key) {
+    if (key.length() > 0 && key.charAt(0) == EXPORT_ROOT_PREFIX) {
+      return false;
+    }
+    for (String scopePrefix : SCOPE_PREFIXES) {
+      if (key.startsWith(scopePrefix)) {
+        String path = key.substring(scopePrefix.length());
+        return (this.includes.isEmpty() || this.includes.matches(path)) && !this.excludes.matches(path);
+      }
+    }
+    return true;
+  }
+
+  private static int skipWhitespace(String line, int start) {
+    int i = start;
+    while (i < line.length() && isWhitespace(line.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\f';
+  }
+
+  /**
+   * Finds out whether a line is continued on the next line, i.e. whether it ends with an odd number
+   * of backslashes.
+   *
+   * @param line the line
+   * @return {@code true} if the line is continued
+   */
+  private static boolean endsWithContinuation(String line) {
+    int backslashes = 0;
+    for (int i = line.length() - 1; i >= 0 && line.charAt(i) == '\\'; i--) {
+      backslashes++;
+    }
+    return backslashes % 2 == 1;
+  }
+
+  /**
+   * Reads the key of a properties line, i.e. everything up to the first separator not escaped, and
+   * resolves its escape sequences. Keys continued on the next line are cut at the end of the line,
+   * which is enough to match the prefixes of the node paths.
+   *
+   * @param line the line
+   * @param start the index the key starts at
+   * @return the key
+   */
+  private static String unescapeKey(String line, int start) {
+    StringBuilder key = new StringBuilder(line.length() - start);
+    int i = start;
+    while (i < line.length()) {
+      char c = line.charAt(i++);
+      if (c == '=' || c == ':' || isWhitespace(c)) {
+        break;
+      }
+      if (c != '\\') {
+        key.append(c);
+      } else if (i < line.length()) {
+        c = line.charAt(i++);
+        if (c == 'u' && i + 4 <= line.length()) {
+          try {
+            key.append((char) Integer.parseInt(line.substring(i, i + 4), 16));
+            i += 4;
+          } catch (NumberFormatException e) {
+            key.append(c);
+          }
+        } else if (c == 't') {
+          key.append('\t');
+        } else if (c == 'n') {
+          key.append('\n');
+        } else if (c == 'r') {
+          key.append('\r');
+        } else if (c == 'f') {
+          key.append('\f');
+        } else {
+          key.append(c);
+        }
+      }
+    }
+    return key.toString();
+  }
+}
@@ -12,32 +12,56 @@
  */
 package ch.netcetera.eclipse.workspaceconfig.core.internal;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.preferences.ConfigurationScope;
 import org.eclipse.core.runtime.preferences.IExportedPreferences;
 import org.eclipse.core.runtime.preferences.IPreferenceFilter;
 import org.eclipse.core.runtime.preferences.IPreferencesService;
 import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.osgi.framework.FrameworkUtil;
+import org.osgi.service.prefs.BackingStoreException;
+import org.osgi.service.prefs.Preferences;
 
 import ch.netcetera.eclipse.common.io.IOUtil;
 import ch.netcetera.eclipse.workspaceconfig.core.IPreferencesImportService;
-import ch.netcetera.eclipse.workspaceconfig.net.IPreferenceFileData;
+import ch.netcetera.eclipse.workspaceconfig.core.PreferenceKeyFilter;
+import ch.netcetera.eclipse.workspaceconfig.net.IPreferenceFileStream;
 import ch.netcetera.eclipse.workspaceconfig.net.IWorkspacePreferenceClient;
 
 
@@ -49,7 +73,28 @@ public class PreferencesImportService implements IPreferencesImportService {
   private static final String PROTOCOL_PREFIX_FILE = "file";
   private static final String PROTOCOL_PREFIX_HTTP = "http";
 
+  /** The maximum number of configuration files fetched at the same time. */
+  private static final int MAX_CONCURRENT_FETCHES = 4;
+
+  private static final int SPOOL_BUFFER_SIZE = 1024 * 8;
+
+  private static final String FETCH_THREAD_NAME = "Workspace configuration fetch";
+  private static final String PROVISIONING_THREAD_NAME = "Workspace provisioning";
+
+  /** The status code of an import that has not applied anything. */
+  private static final int CODE_SKIPPED = 1;
+
+  /** How often a cancellation is checked for while waiting for a fetch. */
+  private static final long CANCEL_POLL_INTERVAL_MILLIS = 200L;
+
+  /** The preference scopes that are imported. */
+  private static final String[] IMPORT_SCOPES = {InstanceScope.SCOPE, ConfigurationScope.SCOPE};
+
+  private static final String CONTENT_DIGEST_ALGORITHM = "SHA-1";
+  private static final String LEDGER_FILE_NAME = "applied-content.properties";
+
   private volatile IWorkspacePreferenceClient client;
+  private volatile AppliedContentLedger ledger;
 
   /**
    * Binds the {@link IWorkspacePreferenceClient} service reference.
@@ -75,105 +120,907 @@ public class PreferencesImportService implements IPreferencesImportService {
   @Override
   public IStatus importConfigFile(String url, List<String> systemPropertyReplacementList) {
     IStatus importStatus = Status.OK_STATUS;
-    if (url.toLowerCase().startsWith(PROTOCOL_PREFIX_HTTP)) {
-      importStatus = importConfigFileHttp(url, systemPropertyReplacementList);
-    } else if (url.toLowerCase().startsWith(PROTOCOL_PREFIX_FILE)) {
-      importStatus = importConfigFileFile(url, systemPropertyReplacementList);
+    SystemPropertyReplacer replacer = new SystemPropertyReplacer(systemPropertyReplacementList);
+    AppliedContentLedger ledger = getLedger();
+    FetchedConfigFile configFile = null;
+    try {
+      configFile = fetchConfigFile(url, false, new NullProgressMonitor());
+      if (configFile != null) {
+        IStatus applyStatus = applyConfigFiles(Collections.singletonList(url), Collections.singletonList(configFile),
+            replacer, replacer.getFingerprint(), ledger);
+        importStatus = createSourceStatus(url, configFile, applyStatus);
+      }
+    } catch (CoreException e) {
+      importStatus = wrapExceptionInErrorStatus(e);
+    } catch (IOException e) {
+      importStatus = wrapExceptionInErrorStatus(e);
+    } finally {
+      IOUtil.closeSilently(configFile);
+      saveLedger(ledger);
     }
     return importStatus;
   }
 
   /**
-   * Imports a configuration from a file:// URL.
+   * {@inheritDoc}
+   */
+  @Override
+  public IStatus importConfigFiles(List<String> urlList, List<String> systemPropertyReplacementList,
+      IProgressMonitor monitor) {
+    return importConfigFiles(urlList, systemPropertyReplacementList, PreferenceKeyFilter.NONE, false, monitor);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public IStatus importConfigFiles(List<String> urlList, List<String> systemPropertyReplacementList,
+      PreferenceKeyFilter keyFilter, IProgressMonitor monitor) {
+    return importConfigFiles(urlList, systemPropertyReplacementList, keyFilter, false, monitor);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public IStatus importMirroredConfigFiles(List<String> urlList, List<String> systemPropertyReplacementList,
+      IProgressMonitor monitor) {
+    return importConfigFiles(urlList, systemPropertyReplacementList, PreferenceKeyFilter.NONE, true, monitor);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public IStatus importMirroredConfigFiles(List<String> urlList, List<String> systemPropertyReplacementList,
+      PreferenceKeyFilter keyFilter, IProgressMonitor monitor) {
+    return importConfigFiles(urlList, systemPropertyReplacementList, keyFilter, true, monitor);
+  }
+
+  /**
+   * Imports configuration files.
    *
-   * @param systemPropertyReplacementList the system property replacements to do duringthe import
+   * @param urlList the URLs of the configuration files
+   * @param systemPropertyReplacementList the system property replacements to do during the import
+   * @param keyFilter the filter of the preference keys to import
+   * @param preferMirror {@code true} to read remote files from the local mirror if there is one
+   * @param monitor the progress monitor
+   * @return the status of the import, a multi status with one child per URL
    */
-  @SuppressWarnings("resource")
-  private IStatus importConfigFileFile(String url, List<String> systemPropertyReplacementList) {
+  private IStatus importConfigFiles(List<String> urlList, List<String> systemPropertyReplacementList,
+      PreferenceKeyFilter keyFilter, boolean preferMirror, IProgressMonitor monitor) {
     String bundleSymbolicName = FrameworkUtil.getBundle(this.getClass()).getSymbolicName();
-    IStatus importStatus = Status.OK_STATUS;
-    InputStream inputStream = null;
+    String message = "Import of the workspace configuration files";
+    IStatus[] sourceStatuses = new IStatus[urlList.size()];
+    if (urlList.isEmpty()) {
+      return new MultiStatus(bundleSymbolicName, IStatus.OK, sourceStatuses, message, null);
+    }
 
+    SubMonitor progress = SubMonitor.convert(monitor, urlList.size() + 1);
+    SystemPropertyReplacer systemPropertyReplacer = new SystemPropertyReplacer(systemPropertyReplacementList);
+    IReplacer replacer = systemPropertyReplacer;
+    String fingerprint = systemPropertyReplacer.getFingerprint();
+    if (!keyFilter.isEmpty()) {
+      replacer = new PreferenceKeyFilterReplacer(keyFilter, systemPropertyReplacer);
+      // content applied with other filters must not count as applied
+      fingerprint = DigestUtils.shaHex(fingerprint + '\n' + keyFilter);
+    }
+    AppliedContentLedger ledger = getLedger();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(urlList.size(), MAX_CONCURRENT_FETCHES),
+        new NamedThreadFactory(FETCH_THREAD_NAME));
+    List<Future<FetchedConfigFile>> fetches = submitFetches(executor, urlList, preferMirror);
     try {
-      URI uri = new URI(url);
-      if (uri.getAuthority() == null) {
-        File sourceFile = new File(uri);
-        if (sourceFile.canRead()) {
-          try {
-            inputStream = new FileInputStream(sourceFile);
-            importConfigurationFromStream(inputStream, systemPropertyReplacementList);
-          } catch (FileNotFoundException e) {
-            importStatus = wrapExceptionInErrorStatus(e);
-          } catch (SecurityException e) {
-            importStatus = wrapExceptionInErrorStatus(e);
-          } catch (CoreException e) {
-            importStatus = wrapExceptionInErrorStatus(e);
-          } finally {
-            IOUtil.closeSilently(inputStream);
+      // wait for all sources, the ones that could not be fetched are left out of the merge
+      List<Integer> fetchedIndexList = new ArrayList<Integer>(urlList.size());
+      List<String> fetchedUrlList = new ArrayList<String>(urlList.size());
+      List<FetchedConfigFile> fetchedList = new ArrayList<FetchedConfigFile>(urlList.size());
+      for (int i = 0; i < urlList.size(); i++) {
+        String url = urlList.get(i);
+        progress.subTask(url);
+        FetchedConfigFile configFile;
+        try {
+          configFile = await(fetches.get(i), progress);
+        } catch (ExecutionException e) {
+          sourceStatuses[i] = createSourceErrorStatus(url, wrapExceptionInErrorStatus(e.getCause()));
+          progress.worked(1);
+          continue;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return createCanceledImportStatus(urlList, sourceStatuses, message);
+        }
+        if (progress.isCanceled()) {
+          return createCanceledImportStatus(urlList, sourceStatuses, message);
+        }
+        if (configFile == null) {
+          sourceStatuses[i] = createSkipStatus(url, "protocol not supported");
+        } else {
+          fetchedIndexList.add(Integer.valueOf(i));
+          fetchedUrlList.add(url);
+          fetchedList.add(configFile);
+        }
+        progress.worked(1);
+      }
+
+      // apply the merged sources at once
+      if (!fetchedList.isEmpty()) {
+        IStatus applyStatus;
+        try {
+          applyStatus = applyConfigFiles(fetchedUrlList, fetchedList, replacer, fingerprint, ledger);
+          message += ": " + applyStatus.getMessage();
+        } catch (CoreException e) {
+          applyStatus = wrapExceptionInErrorStatus(e);
+        } catch (IOException e) {
+          applyStatus = wrapExceptionInErrorStatus(e);
+        }
+        for (int i = 0; i < fetchedIndexList.size(); i++) {
+          String url = fetchedUrlList.get(i);
+          sourceStatuses[fetchedIndexList.get(i).intValue()] = applyStatus.isOK()
+              ? createSourceStatus(url, fetchedList.get(i), applyStatus) : createSourceErrorStatus(url, applyStatus);
+        }
+      }
+      progress.worked(1);
+    } finally {
+      executor.shutdownNow();
+      for (Future<FetchedConfigFile> fetch : fetches) {
+        fetch.cancel(true);
+        closeFetchedConfigFile(fetch);
+      }
+      saveLedger(ledger);
+    }
+    return new MultiStatus(bundleSymbolicName, IStatus.OK, sourceStatuses, message, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public IStatus prefetchConfigFiles(List<String> urlList, final IProgressMonitor monitor) {
+    String bundleSymbolicName = FrameworkUtil.getBundle(this.getClass()).getSymbolicName();
+    List<String> remoteUrlList = new ArrayList<String>(urlList.size());
+    for (String url : urlList) {
+      if (url.toLowerCase().startsWith(PROTOCOL_PREFIX_HTTP)) {
+        remoteUrlList.add(url);
+      }
+    }
+    IStatus[] sourceStatuses = new IStatus[remoteUrlList.size()];
+    String message = "Prefetch of the workspace configuration files";
+    if (remoteUrlList.isEmpty()) {
+      return new MultiStatus(bundleSymbolicName, IStatus.OK, sourceStatuses, message, null);
+    }
+
+    SubMonitor progress = SubMonitor.convert(monitor, remoteUrlList.size());
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(remoteUrlList.size(), MAX_CONCURRENT_FETCHES),
+        new NamedThreadFactory(FETCH_THREAD_NAME));
+    List<Future<IStatus>> fetches = new ArrayList<Future<IStatus>>(remoteUrlList.size());
+    try {
+      for (final String url : remoteUrlList) {
+        fetches.add(executor.submit(new Callable<IStatus>() {
+
+          /** {@inheritDoc} */
+          @Override
+          public IStatus call() throws CoreException, IOException {
+            return prefetchConfigFile(url, monitor);
           }
+        }));
+      }
+      for (int i = 0; i < remoteUrlList.size(); i++) {
+        String url = remoteUrlList.get(i);
+        progress.subTask(url);
+        try {
+          IStatus status = await(fetches.get(i), progress);
+          sourceStatuses[i] = status != null ? status
+              : new Status(IStatus.CANCEL, bundleSymbolicName, "Prefetch canceled: " + url);
+        } catch (ExecutionException e) {
+          sourceStatuses[i] = createSourceErrorStatus(url, wrapExceptionInErrorStatus(e.getCause()));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          sourceStatuses[i] = new Status(IStatus.CANCEL, bundleSymbolicName, "Prefetch canceled: " + url);
+        }
+        progress.worked(1);
+      }
+    } finally {
+      executor.shutdownNow();
+      for (Future<IStatus> fetch : fetches) {
+        fetch.cancel(true);
+      }
+    }
+    return new MultiStatus(bundleSymbolicName, IStatus.OK, sourceStatuses, message, null);
+  }
+
+  /**
+   * Fetches a remote configuration file into the local mirror. The mirror is only updated once the
+   * whole file has been read, if the monitor is canceled before, the download is aborted by closing
+   * the stream early. Without a local mirror the file is not fetched, the body would be thrown away.
+   *
+   * @param url the http:// or https:// URL
+   * @param monitor the monitor to check for cancellation
+   * @return the status, {@link IStatus#CANCEL} if the monitor has been canceled
+   * @throws CoreException if the configuration file could not be fetched
+   * @throws IOException if the configuration file could not be read
+   */
+  private IStatus prefetchConfigFile(String url, IProgressMonitor monitor) throws CoreException, IOException {
+    IWorkspacePreferenceClient currentClient = this.client;
+    if (currentClient == null) {
+      throw new CoreException(createErrorStatus("could not obtain client service."));
+    }
+    String bundleSymbolicName = FrameworkUtil.getBundle(this.getClass()).getSymbolicName();
+    if (monitor.isCanceled()) {
+      return new Status(IStatus.CANCEL, bundleSymbolicName, "Prefetch canceled: " + url);
+    }
+    if (!currentClient.hasMirror()) {
+      return new Status(IStatus.INFO, bundleSymbolicName, "Not prefetched, there is no local mirror: " + url);
+    }
+    IPreferenceFileStream stream = currentClient.openPreferenceFileStream(url, new NullProgressMonitor());
+    try {
+      InputStream input = stream.getInputStream();
+      byte[] buffer = new byte[SPOOL_BUFFER_SIZE];
+      while (input.read(buffer) != -1) {
+        if (monitor.isCanceled()) {
+          return new Status(IStatus.CANCEL, bundleSymbolicName, "Prefetch canceled: " + url);
+        }
+      }
+    } finally {
+      IOUtil.closeSilently(stream);
+    }
+    return new Status(IStatus.OK, bundleSymbolicName, "Prefetched " + url);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public IStatus provisionWorkspaces(List<File> workspaceList, List<String> urlList,
+      List<String> systemPropertyReplacementList, PreferenceKeyFilter keyFilter, int parallelism,
+      IProgressMonitor monitor) {
+    String bundleSymbolicName = FrameworkUtil.getBundle(this.getClass()).getSymbolicName();
+    String message = "Provisioning of the workspaces";
+    IStatus[] statuses = new IStatus[urlList.size() + workspaceList.size()];
+    SubMonitor progress = SubMonitor.convert(monitor, urlList.size() + workspaceList.size() + 1);
+    IReplacer replacer = new SystemPropertyReplacer(systemPropertyReplacementList);
+    if (!keyFilter.isEmpty()) {
+      replacer = new PreferenceKeyFilterReplacer(keyFilter, replacer);
+    }
+
+    // fetch each configuration file once for all workspaces
+    ExecutorService fetchExecutor = Executors.newFixedThreadPool(
+        Math.max(1, Math.min(urlList.size(), MAX_CONCURRENT_FETCHES)), new NamedThreadFactory(FETCH_THREAD_NAME));
+    List<Future<FetchedConfigFile>> fetches = submitFetches(fetchExecutor, urlList, false);
+    WorkspacePreferenceWriter writer = null;
+    IStatus readStatus = null;
+    String note = "";
+    try {
+      List<FetchedConfigFile> fetchedList = new ArrayList<FetchedConfigFile>(urlList.size());
+      for (int i = 0; i < urlList.size(); i++) {
+        String url = urlList.get(i);
+        progress.subTask(url);
+        FetchedConfigFile configFile;
+        try {
+          configFile = await(fetches.get(i), progress);
+        } catch (ExecutionException e) {
+          statuses[i] = createSourceErrorStatus(url, wrapExceptionInErrorStatus(e.getCause()));
+          progress.worked(1);
+          continue;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return createCanceledProvisioningStatus(urlList, workspaceList, statuses, message);
+        }
+        if (progress.isCanceled()) {
+          return createCanceledProvisioningStatus(urlList, workspaceList, statuses, message);
+        }
+        if (configFile == null) {
+          statuses[i] = createSourceErrorStatus(url, createErrorStatus("protocol not supported"));
         } else {
-          importStatus = new Status(IStatus.ERROR, bundleSymbolicName, "Could not read local file.");
+          fetchedList.add(configFile);
+          statuses[i] = configFile.getMirrorStatus() != null
+              ? new MultiStatus(bundleSymbolicName, IStatus.OK, new IStatus[] {configFile.getMirrorStatus()},
+                  "Fetched " + url, null)
+              : new Status(IStatus.OK, bundleSymbolicName, "Fetched " + url);
         }
-      } else {
-        importStatus = new Status(IStatus.ERROR, bundleSymbolicName, "The file url is invalid.");
+        progress.worked(1);
+      }
+
+      // provisioning the workspaces with a part of the configuration would leave them inconsistent
+      if (fetchedList.size() == urlList.size()) {
+        try {
+          IExportedPreferences preferences = Platform.getPreferencesService().readPreferences(
+              openMergedInput(fetchedList, replacer, null));
+          writer = new WorkspacePreferenceWriter(preferences.node(InstanceScope.SCOPE));
+          if (preferences.nodeExists(ConfigurationScope.SCOPE)) {
+            int count = countKeys(preferences.node(ConfigurationScope.SCOPE));
+            if (count > 0) {
+              note = ", " + count + " configuration scope preferences left out";
+            }
+          }
+        } catch (CoreException e) {
+          readStatus = wrapExceptionInErrorStatus(e);
+        } catch (BackingStoreException e) {
+          readStatus = wrapExceptionInErrorStatus(e);
+        }
+      }
+      progress.worked(1);
+    } finally {
+      fetchExecutor.shutdownNow();
+      for (Future<FetchedConfigFile> fetch : fetches) {
+        fetch.cancel(true);
+        closeFetchedConfigFile(fetch);
       }
-    } catch (IOException e) {
-      importStatus = new Status(IStatus.ERROR, bundleSymbolicName, e.getLocalizedMessage(), e);
-    } catch (URISyntaxException e) {
-      importStatus = new Status(IStatus.ERROR, bundleSymbolicName, e.getLocalizedMessage(), e);
     }
-    return importStatus;
+
+    // the sources that could not be fetched are errors already, a configuration that cannot be read
+    // is an error of each workspace
+    if (writer == null) {
+      for (int i = 0; i < workspaceList.size(); i++) {
+        String workspace = workspaceList.get(i).getPath();
+        statuses[urlList.size() + i] = readStatus == null
+            ? createSkipStatus(workspace, "not all configuration files could be fetched")
+            : new MultiStatus(bundleSymbolicName, IStatus.OK, new IStatus[] {readStatus},
+                "Could not provision " + workspace + ": the configuration files could not be read", null);
+      }
+      return new MultiStatus(bundleSymbolicName, IStatus.OK, statuses,
+          message + ": 0 of " + workspaceList.size() + " workspaces provisioned", null);
+    }
+    return provisionWorkspaces(workspaceList, writer, parallelism, urlList.size(), statuses, message, note, progress);
   }
 
+  /**
+   * Writes the preferences into the workspaces.
+   *
+   * @param workspaceList the root directories of the workspaces
+   * @param writer the writer of the preferences
+   * @param parallelism the maximum number of workspaces written at the same time
+   * @param offset the index of the status of the first workspace
+   * @param statuses the statuses of the provisioning, the ones of the workspaces are set by this
+   *          method
+   * @param message the message of the provisioning status
+   * @param note the note appended to the message
+   * @param progress the progress monitor
+   * @return the status of the provisioning
+   */
+  private IStatus provisionWorkspaces(List<File> workspaceList, final WorkspacePreferenceWriter writer,
+      int parallelism, int offset, IStatus[] statuses, String message, String note, SubMonitor progress) {
+    String bundleSymbolicName = FrameworkUtil.getBundle(this.getClass()).getSymbolicName();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(workspaceList.size(), parallelism)),
+        new NamedThreadFactory(PROVISIONING_THREAD_NAME));
+    List<Future<PreferenceDelta>> writes = new ArrayList<Future<PreferenceDelta>>(workspaceList.size());
+    int provisioned = 0;
+    try {
+      for (final File workspace : workspaceList) {
+        writes.add(executor.submit(new Callable<PreferenceDelta>() {
+
+          /** {@inheritDoc} */
+          @Override
+          public PreferenceDelta call() throws IOException {
+            return writer.write(workspace);
+          }
+        }));
+      }
+      for (int i = 0; i < workspaceList.size(); i++) {
+        String workspace = workspaceList.get(i).getPath();
+        progress.subTask(workspace);
+        PreferenceDelta delta = null;
+        try {
+          delta = await(writes.get(i), progress);
+        } catch (ExecutionException e) {
+          statuses[offset + i] = e.getCause() instanceof WorkspacePreferenceWriter.WorkspaceInUseException
+              ? createSkipStatus(workspace, "the workspace is in use")
+              : new MultiStatus(bundleSymbolicName, IStatus.OK,
+                  new IStatus[] {wrapExceptionInErrorStatus(e.getCause())}, "Could not provision " + workspace, null);
+          progress.worked(1);
+          continue;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        if (delta != null) {
+          provisioned++;
+          statuses[offset + i] = new Status(IStatus.OK, bundleSymbolicName, "Provisioned " + workspace + ": " + delta);
+        } else {
+          statuses[offset + i] = new Status(IStatus.CANCEL, bundleSymbolicName, "Provisioning canceled: " + workspace);
+        }
+        progress.worked(1);
+      }
+    } finally {
+      // workspaces being written are completed, the ones not started yet are left alone
+      executor.shutdown();
+      for (Future<PreferenceDelta> write : writes) {
+        write.cancel(false);
+      }
+    }
+    return new MultiStatus(bundleSymbolicName, IStatus.OK, statuses,
+        message + ": " + provisioned + " of " + workspaceList.size() + " workspaces provisioned" + note, null);
+  }
+
+  private static int countKeys(Preferences node) throws BackingStoreException {
+    int count = node.keys().length;
+    for (String child : node.childrenNames()) {
+      count += countKeys(node.node(child));
+    }
+    return count;
+  }
 
   /**
-   * Imports a configuration from a http:// or https:// URL.
+   * Creates the status of a canceled provisioning. Nothing has been written, so all sources that
+   * have not failed already and all workspaces are reported as canceled.
    *
-   * @param systemPropertyReplacementList the system property replacements to do during the import
+   * @param urlList the URLs of the configuration files
+   * @param workspaceList the root directories of the workspaces
+   * @param statuses the statuses of the sources, {@code null} for the sources not failed yet
+   * @param message the message of the provisioning status
+   * @return the status
    */
-  private IStatus importConfigFileHttp(String url, List<String> systemPropertyReplacementList) {
-    IStatus importStatus = Status.OK_STATUS;
+  private IStatus createCanceledProvisioningStatus(List<String> urlList, List<File> workspaceList,
+      IStatus[] statuses, String message) {
+    String bundleSymbolicName = FrameworkUtil.getBundle(this.getClass()).getSymbolicName();
+    for (int i = 0; i < urlList.size(); i++) {
+      if (statuses[i] == null || statuses[i].isOK()) {
+        statuses[i] = new Status(IStatus.CANCEL, bundleSymbolicName, "Fetch canceled: " + urlList.get(i));
+      }
+    }
+    for (int i = 0; i < workspaceList.size(); i++) {
+      statuses[urlList.size() + i] = new Status(IStatus.CANCEL, bundleSymbolicName, "Provisioning canceled: "
+          + workspaceList.get(i).getPath());
+    }
+    return new MultiStatus(bundleSymbolicName, IStatus.OK, statuses, message, null);
+  }
+
+  /**
+   * Creates the status of a canceled import. Nothing has been applied, so all sources that have not
+   * failed already are reported as canceled.
+   *
+   * @param urlList the URLs of the configuration files
+   * @param sourceStatuses the status of each source, {@code null} for the sources not failed yet
+   * @param message the message of the import status
+   * @return the status
+   */
+  private IStatus createCanceledImportStatus(List<String> urlList, IStatus[] sourceStatuses, String message) {
+    String bundleSymbolicName = FrameworkUtil.getBundle(this.getClass()).getSymbolicName();
+    for (int i = 0; i < sourceStatuses.length; i++) {
+      if (sourceStatuses[i] == null || sourceStatuses[i].isOK()) {
+        sourceStatuses[i] = new Status(IStatus.CANCEL, bundleSymbolicName, "Import canceled: " + urlList.get(i));
+      }
+    }
+    return new MultiStatus(bundleSymbolicName, IStatus.OK, sourceStatuses, message, null);
+  }
 
-    if (this.client != null) {
+  /**
+   * Waits for a task, e.g. a fetch, to complete.
+   *
+   * @param <T> the result type of the task
+   * @param task the task
+   * @param monitor the progress monitor
+   * @return the result of the task or {@code null} if the monitor has been canceled
+   * @throws ExecutionException if the task failed
+   * @throws InterruptedException if the thread has been interrupted while waiting
+   */
+  private static <T> T await(Future<T> task, IProgressMonitor monitor)
+      throws ExecutionException, InterruptedException {
+    while (!monitor.isCanceled()) {
       try {
-        IPreferenceFileData file = this.client.getPreferenceFileData(url, new NullProgressMonitor());
-        importConfigurationFromStream(new ByteArrayInputStream(file.getData()),
-            systemPropertyReplacementList);
-      } catch (CoreException e) {
-        importStatus = wrapExceptionInErrorStatus(e);
-      } catch (IOException e) {
-        importStatus = wrapExceptionInErrorStatus(e);
-      }
-    } else {
-      String bundleSymbolicName = FrameworkUtil.getBundle(this.getClass()).getSymbolicName();
-      importStatus = new Status(IStatus.ERROR, bundleSymbolicName,
-          "could not obtain client service.");
+        return task.get(CANCEL_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        // check for cancellation again
+      }
     }
-    return importStatus;
+    return null;
+  }
+
+  private static void closeFetchedConfigFile(Future<FetchedConfigFile> fetch) {
+    if (fetch.isDone() && !fetch.isCancelled()) {
+      try {
+        IOUtil.closeSilently(fetch.get());
+      } catch (ExecutionException e) {
+        // nothing to close
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Submits the fetches of configuration files. Each file is spooled to disk once it has been
+   * fetched, see {@link #spoolConfigFile(String, FetchedConfigFile)}.
+   *
+   * @param executor the executor to run the fetches
+   * @param urlList the URLs of the configuration files
+   * @param preferMirror {@code true} to read remote files from the local mirror if there is one
+   * @return the fetches, in the same order as the URLs
+   */
+  private List<Future<FetchedConfigFile>> submitFetches(ExecutorService executor, List<String> urlList,
+      final boolean preferMirror) {
+    List<Future<FetchedConfigFile>> fetches = new ArrayList<Future<FetchedConfigFile>>(urlList.size());
+    for (final String url : urlList) {
+      fetches.add(executor.submit(new Callable<FetchedConfigFile>() {
+
+        /** {@inheritDoc} */
+        @Override
+        public FetchedConfigFile call() throws CoreException {
+          return spoolConfigFile(url, fetchConfigFile(url, preferMirror, new NullProgressMonitor()));
+        }
+      }));
+    }
+    return fetches;
+  }
+
+  /**
+   * Reads a fetched remote configuration file into a temporary file. Remote files are fetched ahead
+   * of being applied, copying them to disk releases the connection and keeps them out of the heap
+   * while they wait. Files read from the local mirror are on disk already.
+   *
+   * @param url the URL of the configuration file
+   * @param configFile the fetched configuration file, may be {@code null}
+   * @return the configuration file on the temporary file that is deleted when it is closed
+   * @throws CoreException if the configuration file could not be read
+   */
+  private FetchedConfigFile spoolConfigFile(String url, FetchedConfigFile configFile) throws CoreException {
+    if (configFile == null) {
+      return null;
+    }
+    if (!url.toLowerCase().startsWith(PROTOCOL_PREFIX_HTTP) || configFile.getMirrorStatus() != null) {
+      return configFile;
+    }
+    File spoolFile = null;
+    OutputStream outputStream = null;
+    try {
+      spoolFile = File.createTempFile("workspaceconfig", ".epf");
+      outputStream = new FileOutputStream(spoolFile);
+      InputStream inputStream = configFile.getInputStream();
+      byte[] buffer = new byte[SPOOL_BUFFER_SIZE];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) { // NOPMD assignment in operand is ok
+        outputStream.write(buffer, 0, read);
+      }
+      outputStream.close();
+      return new FetchedConfigFile(new TemporaryFileInputStream(spoolFile), configFile.getValidator(),
+          configFile.getMirrorStatus());
+    } catch (IOException e) {
+      IOUtil.closeSilently(outputStream);
+      if (spoolFile != null) {
+        spoolFile.delete();
+      }
+      throw new CoreException(wrapExceptionInErrorStatus(e));
+    } finally {
+      IOUtil.closeSilently(configFile);
+    }
+  }
+
+  /**
+   * Fetches a configuration file. The caller is responsible for closing the file returned.
+   *
+   * @param url the URL of the configuration file
+   * @param preferMirror {@code true} to read remote files from the local mirror if there is one
+   * @param monitor the progress monitor
+   * @return the configuration file or {@code null} if the protocol of the URL is not supported
+   * @throws CoreException if the configuration file could not be fetched
+   */
+  private FetchedConfigFile fetchConfigFile(String url, boolean preferMirror, IProgressMonitor monitor)
+      throws CoreException {
+    if (url.toLowerCase().startsWith(PROTOCOL_PREFIX_HTTP)) {
+      return fetchConfigFileHttp(url, preferMirror, monitor);
+    } else if (url.toLowerCase().startsWith(PROTOCOL_PREFIX_FILE)) {
+      return fetchConfigFileFile(url);
+    }
+    return null;
+  }
+
+  /**
+   * Fetches a configuration from a file:// URL. The validator is made of the modification time and
+   * the length of the file. Large files are read through a memory mapping.
+   *
+   * @param url the file:// URL
+   * @return the configuration file
+   * @throws CoreException if the configuration file could not be opened
+   */
+  private FetchedConfigFile fetchConfigFileFile(String url) throws CoreException {
+    try {
+      URI uri = new URI(url);
+      if (uri.getAuthority() != null) {
+        throw new CoreException(createErrorStatus("The file url is invalid."));
+      }
+      File sourceFile = new File(uri);
+      if (!sourceFile.canRead()) {
+        throw new CoreException(createErrorStatus("Could not read local file."));
+      }
+      String validator = sourceFile.lastModified() + "/" + sourceFile.length();
+      return new FetchedConfigFile(IOUtil.openFileInputStream(sourceFile), validator);
+    } catch (IOException e) {
+      throw new CoreException(wrapExceptionInErrorStatus(e));
+    } catch (SecurityException e) {
+      throw new CoreException(wrapExceptionInErrorStatus(e));
+    } catch (IllegalArgumentException e) {
+      throw new CoreException(wrapExceptionInErrorStatus(e));
+    } catch (URISyntaxException e) {
+      throw new CoreException(wrapExceptionInErrorStatus(e));
+    }
+  }
+
+  /**
+   * Fetches a configuration from a http:// or https:// URL. The validator is the entity tag sent by
+   * the server. If the server cannot be reached, the local mirror of the configuration file is read
+   * instead. A server that answers with an error status, e.g. because the file has been removed or
+   * access is denied, is not bypassed.
+   *
+   * @param url the http:// or https:// URL
+   * @param preferMirror {@code true} to read the local mirror without contacting the server if
+   *          there is one
+   * @param monitor the progress monitor
+   * @return the configuration file
+   * @throws CoreException if the server answered with an error status or could not be reached and
+   *           there is no local mirror
+   */
+  private FetchedConfigFile fetchConfigFileHttp(String url, boolean preferMirror, IProgressMonitor monitor)
+      throws CoreException {
+    IWorkspacePreferenceClient currentClient = this.client;
+    if (currentClient == null) {
+      throw new CoreException(createErrorStatus("could not obtain client service."));
+    }
+    String bundleSymbolicName = FrameworkUtil.getBundle(this.getClass()).getSymbolicName();
+    if (preferMirror) {
+      IPreferenceFileStream mirrored = currentClient.openMirroredPreferenceFileStream(url);
+      if (mirrored != null) {
+        return new FetchedConfigFile(mirrored.getInputStream(), mirrored.getEntityTag(),
+            new Status(IStatus.OK, bundleSymbolicName, "Read from the local mirror"));
+      }
+    }
+    try {
+      IPreferenceFileStream stream = currentClient.openPreferenceFileStream(url, monitor);
+      return new FetchedConfigFile(stream.getInputStream(), stream.getEntityTag());
+    } catch (CoreException e) {
+      IPreferenceFileStream mirrored = isConnectionFailure(e) ? currentClient.openMirroredPreferenceFileStream(url)
+          : null;
+      if (mirrored == null) {
+        throw e;
+      }
+      return new FetchedConfigFile(mirrored.getInputStream(), mirrored.getEntityTag(), new Status(IStatus.WARNING,
+          bundleSymbolicName, "The server could not be reached, read from the local mirror: "
+          + e.getStatus().getMessage(), e));
+    }
+  }
+
+  /**
+   * Checks whether a fetch failed because the server could not be reached or the transfer broke off.
+   * The errors for unexpected HTTP status codes carry no exception.
+   *
+   * @param e the exception of the fetch
+   * @return {@code true} if the fetch failed with an I/O error
+   */
+  private static boolean isConnectionFailure(CoreException e) {
+    return e.getStatus().getException() instanceof IOException;
   }
 
   /**
-   * Imports a configuration from the {@link InputStream} passed.
+   * Applies fetched configuration files. The files are read as one merged configuration, so
+   * preferences of later files override the ones of earlier files, and the merged configuration is
+   * applied at once. Only the preferences whose value differs from the current value are written.
+   * Nothing is parsed or written if the ledger shows that the same sources or the same content have
+   * already been applied.
    *
-   * @param inputStream the {@link InputStream} to read the configuration from
-   * @param systemPropertyReplacementList the replacement list
+   * @param urlList the URLs of the configuration files
+   * @param configFileList the configuration files, in the same order as the URLs
+   * @param replacer the replacer doing the system property replacements
+   * @param fingerprint the fingerprint of the system property values substituted
+   * @param ledger the ledger of the applied content, may be {@code null}, the URLs only count as
+   *          applied if they have been applied in the same order
+   * @return the status of the import, its code is {@link #CODE_SKIPPED} if nothing has been applied
+   *         and its message reports the delta applied or the reason for skipping
    * @throws CoreException on import errors
    * @throws IOException on IO errors
    */
-  private void importConfigurationFromStream(InputStream inputStream,
-      List<String> systemPropertyReplacementList) throws CoreException, IOException {
-    IPreferenceFilter[] transfers = getPreferenceImportFilters();
-    SystemPropertyReplacer replacer = new SystemPropertyReplacer(systemPropertyReplacementList);
-    @SuppressWarnings("resource")
-    BufferedReplacementInputStream input = new BufferedReplacementInputStream(replacer, inputStream);
+  private IStatus applyConfigFiles(List<String> urlList, List<FetchedConfigFile> configFileList, IReplacer replacer,
+      String fingerprint, AppliedContentLedger ledger) throws CoreException, IOException {
+    String bundleSymbolicName = FrameworkUtil.getBundle(this.getClass()).getSymbolicName();
+    // which file wins for a key depends on the order of the files
+    String sources = AppliedContentLedger.getSourcesFingerprint(urlList);
+    if (ledger != null && isUnchanged(urlList, configFileList, fingerprint, sources, ledger)) {
+      return new Status(IStatus.OK, bundleSymbolicName, CODE_SKIPPED, "unchanged since the last import", null);
+    }
+
+    List<MessageDigest> digests = new ArrayList<MessageDigest>(configFileList.size());
+    for (int i = 0; i < configFileList.size(); i++) {
+      digests.add(createContentDigest());
+    }
+    // the content is hashed before it is parsed, content that has already been applied is not parsed
+    InputStream input = new TemporaryFileInputStream(spoolMergedInput(configFileList, replacer, digests));
+    List<String> hashes = new ArrayList<String>(digests.size());
     IPreferencesService service = Platform.getPreferencesService();
-    IExportedPreferences preferences = service.readPreferences(input);
-    service.applyPreferences(preferences, transfers);
+    IExportedPreferences preferences;
+    try {
+      boolean applied = ledger != null;
+      for (int i = 0; i < digests.size(); i++) {
+        String hash = new String(Hex.encodeHex(digests.get(i).digest()));
+        hashes.add(hash);
+        applied = applied && ledger.isApplied(urlList.get(i), hash, sources);
+      }
+      if (applied) {
+        recordAll(urlList, configFileList, hashes, fingerprint, sources, ledger);
+        return new Status(IStatus.OK, bundleSymbolicName, CODE_SKIPPED, "content already applied", null);
+      }
+      preferences = service.readPreferences(input);
+    } finally {
+      IOUtil.closeSilently(input);
+    }
+
+    PreferenceDelta delta;
+    try {
+      delta = PreferenceDelta.strip(preferences, service.getRootNode(), IMPORT_SCOPES);
+    } catch (BackingStoreException e) {
+      throw new CoreException(wrapExceptionInErrorStatus(e));
+    }
+    if (!delta.isEmpty()) {
+      service.applyPreferences(preferences, getPreferenceImportFilters());
+    }
+    if (ledger != null) {
+      recordAll(urlList, configFileList, hashes, fingerprint, sources, ledger);
+    }
+    return new Status(IStatus.OK, bundleSymbolicName, delta.toString());
   }
 
   /**
-   * Gets the preference filters. As all preferences of the remote file shall be imported, the
-   * filter only limits the import to the instance and configuration preference scopes.
+   * Opens the fetched configuration files as one merged stream.
+   *
+   * @param configFileList the configuration files
+   * @param replacer the replacer to pass the lines of the files through
+   * @param digests the digests to compute the content hash of each file with, in the same order as
+   *          the files, or {@code null}
+   * @return the merged stream, closing it is left to the configuration files
+   */
+  private static InputStream openMergedInput(List<FetchedConfigFile> configFileList, IReplacer replacer,
+      List<MessageDigest> digests) {
+    List<InputStream> inputs = new ArrayList<InputStream>(configFileList.size());
+    for (int i = 0; i < configFileList.size(); i++) {
+      // every file ends with a line terminator after the replacement, so they can simply be concatenated
+      InputStream input = new BufferedReplacementInputStream(replacer, configFileList.get(i).getInputStream());
+      inputs.add(digests != null ? new DigestInputStream(input, digests.get(i)) : input);
+    }
+    return new SequenceInputStream(Collections.enumeration(inputs));
+  }
+
+  /**
+   * Spools the fetched configuration files into one merged temporary file after the replacements,
+   * computing the content hash of each file on the way.
+   *
+   * @param configFileList the configuration files
+   * @param replacer the replacer to pass the lines of the files through
+   * @param digests the digests to compute the content hash of each file with, in the same order as
+   *          the files
+   * @return the temporary file, deleting it is left to the caller
+   * @throws IOException if the files cannot be read or the temporary file cannot be written
+   */
+  private static File spoolMergedInput(List<FetchedConfigFile> configFileList, IReplacer replacer,
+      List<MessageDigest> digests) throws IOException {
+    File spoolFile = File.createTempFile("workspaceconfig", ".epf");
+    InputStream inputStream = openMergedInput(configFileList, replacer, digests);
+    OutputStream outputStream = null;
+    boolean spooled = false;
+    try {
+      outputStream = new FileOutputStream(spoolFile);
+      byte[] buffer = new byte[SPOOL_BUFFER_SIZE];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) { // NOPMD assignment in operand is ok
+        outputStream.write(buffer, 0, read);
+      }
+      outputStream.close();
+      spooled = true;
+      return spoolFile;
+    } finally {
+      IOUtil.closeSilently(outputStream);
+      if (!spooled) {
+        spoolFile.delete();
+      }
+    }
+  }
+
+  private static boolean isUnchanged(List<String> urlList, List<FetchedConfigFile> configFileList,
+      String fingerprint, String sources, AppliedContentLedger ledger) {
+    for (int i = 0; i < urlList.size(); i++) {
+      if (!ledger.isUnchanged(urlList.get(i), configFileList.get(i).getValidator(), fingerprint, sources)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void recordAll(List<String> urlList, List<FetchedConfigFile> configFileList, List<String> hashes,
+      String fingerprint, String sources, AppliedContentLedger ledger) {
+    for (int i = 0; i < urlList.size(); i++) {
+      ledger.record(urlList.get(i), hashes.get(i), configFileList.get(i).getValidator(), fingerprint, sources);
+    }
+  }
+
+  private MessageDigest createContentDigest() throws CoreException {
+    try {
+      return MessageDigest.getInstance(CONTENT_DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new CoreException(wrapExceptionInErrorStatus(e));
+    }
+  }
+
+  /**
+   * Gets the ledger of the applied content. The ledger lives in the state location of the bundle,
+   * i.e. in the metadata area of the workspace.
+   *
+   * @return the ledger or {@code null} if there is no workspace to keep it in
+   */
+  private AppliedContentLedger getLedger() {
+    AppliedContentLedger currentLedger = this.ledger;
+    if (currentLedger == null) {
+      synchronized (this) {
+        currentLedger = this.ledger;
+        if (currentLedger == null) {
+          try {
+            File file = Platform.getStateLocation(FrameworkUtil.getBundle(this.getClass()))
+                .append(LEDGER_FILE_NAME).toFile();
+            currentLedger = new AppliedContentLedger(file);
+            this.ledger = currentLedger;
+          } catch (IllegalStateException e) {
+            // no instance location, e.g. when running with -data @none
+            return null;
+          }
+        }
+      }
+    }
+    return currentLedger;
+  }
+
+  private static void saveLedger(AppliedContentLedger ledger) {
+    if (ledger == null) {
+      return;
+    }
+    try {
+      ledger.save();
+    } catch (IOException e) {
+      // the ledger only saves work, without it the files are applied once more next time
+    }
+  }
+
+  /**
+   * Creates the status of a source of a successful import. If the configuration file has been read
+   * from the local mirror, the status tells why.
+   *
+   * @param url the URL of the configuration file
+   * @param configFile the configuration file
+   * @param applyStatus the status of applying the configuration files
+   * @return the status
+   */
+  private IStatus createSourceStatus(String url, FetchedConfigFile configFile, IStatus applyStatus) {
+    String bundleSymbolicName = FrameworkUtil.getBundle(this.getClass()).getSymbolicName();
+    String message = (applyStatus.getCode() == CODE_SKIPPED ? "Skipped " : "Imported ") + url + ": "
+        + applyStatus.getMessage();
+    if (configFile.getMirrorStatus() != null) {
+      return new MultiStatus(bundleSymbolicName, applyStatus.getCode(), new IStatus[] {configFile.getMirrorStatus()},
+          message, null);
+    }
+    return new Status(IStatus.OK, bundleSymbolicName, applyStatus.getCode(), message, null);
+  }
+
+  /**
+   * Creates the status of a source that could not be imported.
+   *
+   * @param url the URL of the configuration file
+   * @param status the error status
+   * @return the status
+   */
+  private IStatus createSourceErrorStatus(String url, IStatus status) {
+    String bundleSymbolicName = FrameworkUtil.getBundle(this.getClass()).getSymbolicName();
+    return new MultiStatus(bundleSymbolicName, status.getCode(), new IStatus[] {status}, "Could not import " + url,
+        null);
+  }
+
+  /**
+   * Creates the status of an import that has been skipped.
+   *
+   * @param location the URL of the configuration file or the location of the workspace
+   * @param reason the reason why the import has been skipped
+   * @return the status
+   */
+  private IStatus createSkipStatus(String location, String reason) {
+    String bundleSymbolicName = FrameworkUtil.getBundle(this.getClass()).getSymbolicName();
+    return new Status(IStatus.OK, bundleSymbolicName, CODE_SKIPPED, "Skipped " + location + ": " + reason, null);
+  }
+
+  /**
+   * Gets the preference filters. The filter only limits the import to the instance and
+   * configuration preference scopes, the preference keys are filtered by the
+   * {@link PreferenceKeyFilterReplacer} while the files are read. Filtering there rather than with
+   * the mapping of the filter keeps the preferences filtered out of the delta and the ledger hash.
    *
    * @return the preference filters.
    */
@@ -185,7 +1032,7 @@ public class PreferencesImportService implements IPreferencesImportService {
        */
       @Override
       public String[] getScopes() {
-        return new String[]{InstanceScope.SCOPE, ConfigurationScope.SCOPE};
+        return IMPORT_SCOPES.clone();
       }
 
       /**
@@ -200,6 +1047,17 @@ public class PreferencesImportService implements IPreferencesImportService {
     return new IPreferenceFilter[]{filter};
   }
 
+  /**
+   * Creates a {@link IStatus} instance with the status value {@link IStatus#ERROR}.
+   *
+   * @param message the message
+   * @return the {@link IStatus} instance
+   */
+  private IStatus createErrorStatus(String message) {
+    String bundleSymbolicName = FrameworkUtil.getBundle(this.getClass()).getSymbolicName();
+    return new Status(IStatus.ERROR, bundleSymbolicName, message);
+  }
+
   /**
    * Wraps a {@link Throwable} in a {@link IStatus} instance with the status value
    * {@link IStatus#ERROR}.
@@ -211,4 +1069,59 @@ public class PreferencesImportService implements IPreferencesImportService {
     String bundleSymbolicName = FrameworkUtil.getBundle(this.getClass()).getSymbolicName();
     return new Status(IStatus.ERROR, bundleSymbolicName, t.getLocalizedMessage(), t);
   }
+
+  /**
+   * A {@link FileInputStream} that deletes its file when it is closed.
+   */
+  private static final class TemporaryFileInputStream extends FileInputStream {
+
+    private final File file;
+
+    /**
+     * Constructor.
+     *
+     * @param file the temporary file
+     * @throws FileNotFoundException if the file cannot be opened
+     */
+    TemporaryFileInputStream(File file) throws FileNotFoundException {
+      super(file);
+      this.file = file;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        this.file.delete();
+      }
+    }
+  }
+
+  /**
+   * Creates numbered daemon threads, e.g. the ones that fetch the configuration files.
+   */
+  private static final class NamedThreadFactory implements ThreadFactory {
+
+    private final String name;
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param name the name of the threads, a number is appended
+     */
+    NamedThreadFactory(String name) {
+      this.name = name;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, this.name + ' ' + this.count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
 }
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.workspaceconfig.core.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.util.tracker.ServiceTracker;
+
+import ch.netcetera.eclipse.common.io.IOUtil;
+import ch.netcetera.eclipse.workspaceconfig.core.IPreferencesImportService;
+import ch.netcetera.eclipse.workspaceconfig.core.PreferenceKeyFilter;
+
+/**
+ * Headless application that provisions workspaces that are not running with configuration files
+ * (EPF), see
+ * {@link IPreferencesImportService#provisionWorkspaces(List, List, List, PreferenceKeyFilter, int, IProgressMonitor)}.
+ *
+ * <p>
+ * Usage:
+ * </p>
+ *
+ * <pre>
+ * eclipse -nosplash -data @none -application ch.netcetera.eclipse.workspaceconfig.core.provision
+ *     -workspace &lt;dir&gt; [-workspace &lt;dir&gt; ...] -epf &lt;url&gt; [-epf &lt;url&gt; ...]
+ *     [-replace &lt;system property&gt; ...] [-include &lt;key pattern&gt; ...] [-exclude &lt;key pattern&gt; ...]
+ *     [-threads &lt;number of workspaces written at the same time&gt;] [-summary &lt;file&gt;]
+ * </pre>
+ *
+ * <p>
+ * The summary is written as JSON to the file passed or to the standard output. It holds the overall
+ * severity and message and the severity and message of each URL and each workspace. The exit code
+ * is {@code 0} unless a URL or a workspace failed.
+ * </p>
+ */
+public class ProvisioningApplication implements IApplication {
+
+  private static final String ARG_WORKSPACE = "-workspace";
+  private static final String ARG_EPF = "-epf";
+  private static final String ARG_REPLACE = "-replace";
+  private static final String ARG_INCLUDE = "-include";
+  private static final String ARG_EXCLUDE = "-exclude";
+  private static final String ARG_THREADS = "-threads";
+  private static final String ARG_SUMMARY = "-summary";
+
+  private static final Integer EXIT_FAILED = Integer.valueOf(1);
+  private static final Integer EXIT_USAGE = Integer.valueOf(2);
+
+  /** How long to wait for the import service to be registered. */
+  private static final long SERVICE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30L);
+
+  private static final String ENCODING = "UTF-8";
+
+  private final IProgressMonitor monitor = new NullProgressMonitor();
+
+  private final List<File> workspaceList = new ArrayList<File>();
+  private final List<String> urlList = new ArrayList<String>();
+  private final List<String> replacementList = new ArrayList<String>();
+  private final List<String> includeList = new ArrayList<String>();
+  private final List<String> excludeList = new ArrayList<String>();
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+  private File summaryFile;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object start(IApplicationContext context) throws Exception {
+    String[] args = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+    try {
+      parseArguments(args != null ? args : new String[0]);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      return EXIT_USAGE;
+    }
+    context.applicationRunning();
+
+    BundleContext bundleContext = FrameworkUtil.getBundle(this.getClass()).getBundleContext();
+    ServiceTracker<IPreferencesImportService, IPreferencesImportService> tracker =
+        new ServiceTracker<IPreferencesImportService, IPreferencesImportService>(bundleContext,
+            IPreferencesImportService.class, null);
+    tracker.open();
+    try {
+      IPreferencesImportService service = tracker.waitForService(SERVICE_TIMEOUT_MILLIS);
+      if (service == null) {
+        System.err.println("The preferences import service is not available.");
+        return EXIT_FAILED;
+      }
+      IStatus status = service.provisionWorkspaces(this.workspaceList, this.urlList, this.replacementList,
+          new PreferenceKeyFilter(this.includeList, this.excludeList), this.parallelism, this.monitor);
+      writeSummary(status);
+      return status.getSeverity() >= IStatus.ERROR ? EXIT_FAILED : EXIT_OK;
+    } finally {
+      tracker.close();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void stop() {
+    this.monitor.setCanceled(true);
+  }
+
+  private void parseArguments(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (i + 1 == args.length) {
+        throw new IllegalArgumentException("Missing value of " + arg);
+      }
+      String value = args[++i];
+      if (ARG_WORKSPACE.equals(arg)) {
+        this.workspaceList.add(new File(value));
+      } else if (ARG_EPF.equals(arg)) {
+        this.urlList.add(value);
+      } else if (ARG_REPLACE.equals(arg)) {
+        this.replacementList.add(value);
+      } else if (ARG_INCLUDE.equals(arg)) {
+        this.includeList.add(value);
+      } else if (ARG_EXCLUDE.equals(arg)) {
+        this.excludeList.add(value);
+      } else if (ARG_THREADS.equals(arg)) {
+        this.parallelism = parsePositiveInt(arg, value);
+      } else if (ARG_SUMMARY.equals(arg)) {
+        this.summaryFile = new File(value);
+      } else {
+        throw new IllegalArgumentException("Unknown argument " + arg);
+      }
+    }
+    if (this.workspaceList.isEmpty() || this.urlList.isEmpty()) {
+      throw new IllegalArgumentException("At least one " + ARG_WORKSPACE + " and one " + ARG_EPF + " are required");
+    }
+  }
+
+  private static int parsePositiveInt(String arg, String value) {
+    try {
+      int result = Integer.parseInt(value);
+      if (result > 0) {
+        return result;
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException("The value of " + arg + " must be a positive number: " + value);
+  }
+
+  /**
+   * Writes the summary of the provisioning. The children of the status are the statuses of the
+   * URLs followed by the ones of the workspaces.
+   *
+   * @param status the status of the provisioning
+   * @throws IOException if the summary cannot be written
+   */
+  private void writeSummary(IStatus status) throws IOException {
+    StringBuilder json = new StringBuilder();
+    json.append("{\n");
+    appendStatus(json, "  ", status, false);
+    json.append(",\n  \"sources\": [");
+    IStatus[] children = status.getChildren();
+    for (int i = 0; i < this.urlList.size(); i++) {
+      appendEntry(json, "url", this.urlList.get(i), children[i], i == 0);
+    }
+    json.append("\n  ],\n  \"workspaces\": [");
+    for (int i = 0; i < this.workspaceList.size(); i++) {
+      appendEntry(json, "location", this.workspaceList.get(i).getPath(), children[this.urlList.size() + i], i == 0);
+    }
+    json.append("\n  ]\n}\n");
+
+    OutputStream output = this.summaryFile != null ? new FileOutputStream(this.summaryFile) : System.out;
+    Writer writer = new OutputStreamWriter(output, ENCODING);
+    try {
+      writer.write(json.toString());
+      writer.flush();
+    } finally {
+      if (this.summaryFile != null) {
+        IOUtil.closeSilently(writer);
+      }
+    }
+  }
+
+  private static void appendEntry(StringBuilder json, String name, String value, IStatus status, boolean first) {
+    json.append(first ? "\n" : ",\n").append("    {\"").append(name).append("\": ");
+    appendString(json, value);
+    json.append(",\n");
+    appendStatus(json, "     ", status, true);
+    json.append('}');
+  }
+
+  private static void appendStatus(StringBuilder json, String indent, IStatus status, boolean details) {
+    json.append(indent).append("\"severity\": ");
+    appendString(json, getSeverityName(status.getSeverity()));
+    json.append(",\n").append(indent).append("\"message\": ");
+    appendString(json, status.getMessage());
+    IStatus[] children = status.getChildren();
+    if (details && children.length > 0) {
+      // e.g. why a URL or a workspace failed
+      json.append(",\n").append(indent).append("\"details\": [");
+      for (int i = 0; i < children.length; i++) {
+        json.append(i == 0 ? "" : ", ");
+        appendString(json, children[i].getMessage());
+      }
+      json.append(']');
+    }
+  }
+
+  private static String getSeverityName(int severity) {
+    switch (severity) {
+      case IStatus.OK:
+        return "OK";
+      case IStatus.INFO:
+        return "INFO";
+      case IStatus.WARNING:
+        return "WARNING";
+      case IStatus.ERROR:
+        return "ERROR";
+      case IStatus.CANCEL:
+        return "CANCEL";
+      default:
+        return String.valueOf(severity);
+    }
+  }
+
+  private static void appendString(StringBuilder json, String value) {
+    if (value == null) {
+      json.append("null");
+      return;
+    }
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c == '\n') {
+        json.append("\\n");
+      } else if (c == '\r') {
+        json.append("\\r");
+      } else if (c == '\t') {
+        json.append("\\t");
+      } else if (c < ' ') {
+        json.append(String.format("\\u%04x", Integer.valueOf(c)));
+      } else {
+        json.append(c);
+      }
+    }
+    json.append('"');
+  }
+}
@@ -12,18 +12,38 @@
  */
 package ch.netcetera.eclipse.workspaceconfig.core.internal;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.codec.digest.DigestUtils;
 
 
 /**
  * Replaces values in String based on system properties.
+ *
+ * <p>
+ * A placeholder is the name of a system property prefixed with <code>$</code>. The values of the
+ * system properties are read once, on the first call to {@link #replace(String)}, and are inserted
+ * literally. All placeholders are matched by a single precompiled pattern in one left-to-right scan,
+ * values inserted are not scanned again.
+ * </p>
  */
 public class SystemPropertyReplacer implements IReplacer {
 
-  private static final String PREFIX_PATTERN = "\\$";
+  private static final char PREFIX = '$';
 
   private final List<String> replacementList;
 
+  private Map<String, String> values;
+  private Pattern pattern;
+
   /**
    * Constructor.
    *
@@ -40,13 +60,84 @@ public class SystemPropertyReplacer implements IReplacer {
    */
   @Override
   public String replace(String in) {
-    String out = in;
+    if (in.indexOf(PREFIX) == -1) {
+      return in;
+    }
+    if (this.values == null) {
+      initialize();
+    }
+    if (this.pattern == null) {
+      return in;
+    }
+
+    Matcher matcher = this.pattern.matcher(in);
+    if (!matcher.find()) {
+      return in;
+    }
+    StringBuilder out = new StringBuilder(in.length() + 32);
+    int last = 0;
+    do {
+      out.append(in, last, matcher.start());
+      out.append(this.values.get(matcher.group(1)));
+      last = matcher.end();
+    } while (matcher.find());
+    out.append(in, last, in.length());
+    return out.toString();
+  }
+
+  /**
+   * Gets a fingerprint of the system property values this replacer substitutes. Two replacers with the
+   * same fingerprint produce the same output.
+   *
+   * @return the fingerprint
+   */
+  public String getFingerprint() {
+    if (this.values == null) {
+      initialize();
+    }
+    StringBuilder fingerprint = new StringBuilder();
+    for (Map.Entry<String, String> entry : new TreeMap<String, String>(this.values).entrySet()) {
+      fingerprint.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+    }
+    return DigestUtils.shaHex(fingerprint.toString());
+  }
+
+  /**
+   * Takes the snapshot of the system property values and compiles the pattern matching all
+   * placeholders that have a value.
+   */
+  private void initialize() {
+    Map<String, String> snapshot = new HashMap<String, String>();
+    List<String> placeholders = new ArrayList<String>();
     for (String placeholder : this.replacementList) {
       String systemProperty = System.getProperty(placeholder);
-      if (systemProperty != null) {
-        out = out.replaceAll(PREFIX_PATTERN + placeholder, systemProperty);
+      if (systemProperty != null && !placeholder.isEmpty() && !snapshot.containsKey(placeholder)) {
+        snapshot.put(placeholder, systemProperty);
+        placeholders.add(placeholder);
+      }
+    }
+
+    if (!placeholders.isEmpty()) {
+      // longest first, so that $foo.bar is not matched as $foo followed by .bar
+      Collections.sort(placeholders, new Comparator<String>() {
+
+        /** {@inheritDoc} */
+        @Override
+        public int compare(String o1, String o2) {
+          return o2.length() - o1.length();
+        }
+      });
+      StringBuilder regex = new StringBuilder();
+      regex.append(Pattern.quote(String.valueOf(PREFIX))).append('(');
+      for (int i = 0; i < placeholders.size(); i++) {
+        if (i > 0) {
+          regex.append('|');
+        }
+        regex.append(Pattern.quote(placeholders.get(i)));
       }
+      regex.append(')');
+      this.pattern = Pattern.compile(regex.toString());
     }
-    return out;
+    this.values = snapshot;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.workspaceconfig.core.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.eclipse.core.runtime.preferences.IExportedPreferences;
+import org.osgi.service.prefs.BackingStoreException;
+import org.osgi.service.prefs.Preferences;
+
+import ch.netcetera.eclipse.common.io.IOUtil;
+
+/**
+ * Writes instance scope preferences into the metadata of a workspace that is not running, the same
+ * way the workspace stores them itself: one properties file per preference qualifier, keys of child
+ * nodes prefixed with the relative path of the node. Keys that contain a slash are separated from
+ * the path by a double slash, like {@code EclipsePreferences.encodePath} does.
+ *
+ * <p>
+ * Only the files with keys that are added or changed are written, each to a temporary file first
+ * that then replaces the original. The workspace lock is held while writing, so a workspace in use
+ * is not touched, a {@link WorkspaceInUseException} is thrown instead. An instance is immutable and
+ * can write into several workspaces at the same time.
+ * </p>
+ *
+ * <p>
+ * Nodes that are export roots replace the node of the workspace as a whole, like importing them
+ * does: the keys the workspace has below such a node that are not in the preferences are removed.
+ * </p>
+ */
+final class WorkspacePreferenceWriter {
+
+  private static final String METADATA_PATH = ".metadata";
+  private static final String LOCK_FILE_NAME = ".lock";
+  private static final String SETTINGS_PATH = METADATA_PATH + "/.plugins/org.eclipse.core.runtime/.settings";
+  private static final String PREFS_EXTENSION = ".prefs";
+  private static final String VERSION_KEY = "eclipse.preferences.version";
+  private static final String VERSION = "1";
+  private static final String PATH_SEPARATOR = "/";
+  private static final String DOUBLE_SLASH = "//";
+  private static final String TEMPORARY_EXTENSION = ".tmp";
+
+  private final Map<String, Map<String, String>> preferences;
+  private final Map<String, List<String>> exportRoots;
+
+  /**
+   * Constructor.
+   *
+   * @param instanceNode the instance scope node of the preferences to write
+   * @throws BackingStoreException if the preferences cannot be read
+   */
+  WorkspacePreferenceWriter(Preferences instanceNode) throws BackingStoreException {
+    Map<String, Map<String, String>> byQualifier = new TreeMap<String, Map<String, String>>();
+    Map<String, List<String>> exportRootsByQualifier = new TreeMap<String, List<String>>();
+    for (String qualifier : instanceNode.childrenNames()) {
+      Map<String, String> values = new LinkedHashMap<String, String>();
+      List<String> exportRootPaths = new ArrayList<String>();
+      collect(instanceNode.node(qualifier), "", values, exportRootPaths);
+      if (!values.isEmpty() || !exportRootPaths.isEmpty()) {
+        byQualifier.put(qualifier, Collections.unmodifiableMap(values));
+        exportRootsByQualifier.put(qualifier, Collections.unmodifiableList(exportRootPaths));
+      }
+    }
+    this.preferences = Collections.unmodifiableMap(byQualifier);
+    this.exportRoots = Collections.unmodifiableMap(exportRootsByQualifier);
+  }
+
+  private static void collect(Preferences node, String path, Map<String, String> values, List<String> exportRootPaths)
+      throws BackingStoreException {
+    if (node instanceof IExportedPreferences && ((IExportedPreferences) node).isExportRoot()) {
+      exportRootPaths.add(path);
+    }
+    for (String key : node.keys()) {
+      values.put(encodePath(path, key), node.get(key, null));
+    }
+    for (String child : node.childrenNames()) {
+      collect(node.node(child), path.length() == 0 ? child : path + PATH_SEPARATOR + child, values, exportRootPaths);
+    }
+  }
+
+  /**
+   * Encodes the key of a node into a key of the properties file the same way
+   * {@code EclipsePreferences.encodePath} does.
+   *
+   * @param path the path of the node relative to the qualifier, empty for the qualifier node
+   * @param key the key
+   * @return the key of the properties file
+   */
+  static String encodePath(String path, String key) {
+    if (key.indexOf(PATH_SEPARATOR) == -1) {
+      return path.length() == 0 ? key : path + PATH_SEPARATOR + key;
+    }
+    return path + DOUBLE_SLASH + key;
+  }
+
+  /**
+   * Gets the path of the node of a key of the properties file, the reverse of
+   * {@link #encodePath(String, String)}.
+   *
+   * @param encodedKey the key of the properties file
+   * @return the path of the node relative to the qualifier, empty for the qualifier node
+   */
+  static String decodePath(String encodedKey) {
+    int index = encodedKey.indexOf(DOUBLE_SLASH);
+    if (index == -1) {
+      index = encodedKey.lastIndexOf(PATH_SEPARATOR);
+    }
+    return index == -1 ? "" : encodedKey.substring(0, index);
+  }
+
+  private static boolean isBelowExportRoot(String path, List<String> exportRootPaths) {
+    for (String exportRootPath : exportRootPaths) {
+      if (exportRootPath.length() == 0 || path.equals(exportRootPath)
+          || path.startsWith(exportRootPath + PATH_SEPARATOR)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Writes the preferences into a workspace. The workspace is created if it does not exist.
+   *
+   * @param workspace the root directory of the workspace
+   * @return the delta between the preferences and the ones the workspace had before
+   * @throws WorkspaceInUseException if the workspace is in use
+   * @throws IOException if the preferences cannot be written
+   */
+  PreferenceDelta write(File workspace) throws IOException {
+    File settings = new File(workspace, SETTINGS_PATH);
+    if (!settings.isDirectory() && !settings.mkdirs()) {
+      throw new IOException("Could not create " + settings);
+    }
+    RandomAccessFile lockFile = new RandomAccessFile(new File(new File(workspace, METADATA_PATH), LOCK_FILE_NAME),
+        "rw");
+    try {
+      FileLock lock;
+      try {
+        lock = lockFile.getChannel().tryLock();
+      } catch (OverlappingFileLockException e) {
+        // the same workspace is being written by another thread
+        lock = null;
+      }
+      if (lock == null) {
+        throw new WorkspaceInUseException("The workspace " + workspace + " is in use");
+      }
+      try {
+        PreferenceDelta delta = new PreferenceDelta();
+        for (Map.Entry<String, Map<String, String>> entry : this.preferences.entrySet()) {
+          write(new File(settings, entry.getKey() + PREFS_EXTENSION), entry.getValue(),
+              this.exportRoots.get(entry.getKey()), delta);
+        }
+        return delta;
+      } finally {
+        lock.release();
+      }
+    } finally {
+      IOUtil.closeSilently(lockFile);
+    }
+  }
+
+  private static void write(File file, Map<String, String> values, List<String> exportRootPaths,
+      PreferenceDelta delta) throws IOException {
+    Properties properties = new Properties();
+    if (file.isFile()) {
+      InputStream input = new FileInputStream(file);
+      try {
+        properties.load(input);
+      } finally {
+        IOUtil.closeSilently(input);
+      }
+    }
+    boolean modified = false;
+    for (String key : properties.stringPropertyNames()) {
+      if (!VERSION_KEY.equals(key) && !values.containsKey(key) && isBelowExportRoot(decodePath(key), exportRootPaths)) {
+        properties.remove(key);
+        modified = true;
+      }
+    }
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      if (delta.count(properties.getProperty(entry.getKey()), entry.getValue())) {
+        properties.setProperty(entry.getKey(), entry.getValue());
+        modified = true;
+      }
+    }
+    if (!modified) {
+      return;
+    }
+    if (properties.getProperty(VERSION_KEY) == null) {
+      properties.setProperty(VERSION_KEY, VERSION);
+    }
+
+    File temporaryFile = new File(file.getParentFile(), file.getName() + TEMPORARY_EXTENSION);
+    OutputStream output = new FileOutputStream(temporaryFile);
+    try {
+      properties.store(output, null);
+    } finally {
+      IOUtil.closeSilently(output);
+    }
+    // renaming onto an existing file fails on some platforms
+    if (!temporaryFile.renameTo(file) && !(file.delete() && temporaryFile.renameTo(file))) {
+      temporaryFile.delete();
+      throw new IOException("Could not replace " + file);
+    }
+  }
+
+  /**
+   * Signals that a workspace is not written because it is in use.
+   */
+  static final class WorkspaceInUseException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor.
+     *
+     * @param message the message
+     */
+    WorkspaceInUseException(String message) {
+      super(message);
+    }
+  }
+}
@@ -29,4 +29,41 @@ public interface IWorkspacePreferenceClient {
    * @throws CoreException on errors
    */
   IPreferenceFileData getPreferenceFileData(String url, IProgressMonitor monitor) throws CoreException;
+
+  /**
+   * Opens a stream on the preference file data. Other than {@link #getPreferenceFileData(String, IProgressMonitor)}
+   * this does not read the whole file into memory, the data is read while it is being transferred.
+   *
+   * <p>
+   * The caller owns the stream returned and must close it, the connection to the server is held until then.
+   * </p>
+   *
+   * @param url the URL of the preference file to get
+   * @param monitor the progress monitor to use
+   * @return the preference file data stream
+   * @throws CoreException on errors
+   */
+  IPreferenceFileStream openPreferenceFileStream(String url, IProgressMonitor monitor) throws CoreException;
+
+  /**
+   * Opens a stream on the local mirror of the preference file, i.e. the copy of the preference file as it has last
+   * been fetched from the server. The server is not contacted.
+   *
+   * <p>
+   * The caller owns the stream returned and must close it.
+   * </p>
+   *
+   * @param url the URL of the preference file to get
+   * @return the preference file data stream or {@code null} if there is no local mirror of the preference file
+   */
+  IPreferenceFileStream openMirroredPreferenceFileStream(String url);
+
+  /**
+   * Checks whether the preference files fetched are kept in a local mirror. The mirror keeps the last good copy of
+   * every preference file, whatever validators the server sends. There is none if there is no workspace to keep it
+   * in, e.g. when running with <code>-data @none</code>.
+   *
+   * @return {@code true} if there is a local mirror
+   */
+  boolean hasMirror();
 }
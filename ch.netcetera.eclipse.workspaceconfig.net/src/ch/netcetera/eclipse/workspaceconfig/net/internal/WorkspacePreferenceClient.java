@@ -13,6 +13,7 @@
 package ch.netcetera.eclipse.workspaceconfig.net.internal;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -24,7 +25,10 @@ import org.osgi.framework.FrameworkUtil;
 
 import ch.netcetera.eclipse.common.io.IOUtil;
 import ch.netcetera.eclipse.common.net.AbstractHttpClient;
+import ch.netcetera.eclipse.common.net.HttpResponseCache;
+import ch.netcetera.eclipse.common.net.HttpResponseStream;
 import ch.netcetera.eclipse.workspaceconfig.net.IPreferenceFileData;
+import ch.netcetera.eclipse.workspaceconfig.net.IPreferenceFileStream;
 import ch.netcetera.eclipse.workspaceconfig.net.IWorkspacePreferenceClient;
 
 /**
@@ -43,6 +47,18 @@ public class WorkspacePreferenceClient extends AbstractHttpClient implements
     }
   }
 
+  /**
+   * Creates a mirror, the last good copy of every preference file is kept whatever validators the
+   * server sends, so it can be applied while the server cannot be reached.
+   *
+   * @param directory the directory to store the cached responses in
+   * @return the response cache
+   */
+  @Override
+  protected HttpResponseCache createResponseCache(File directory) {
+    return HttpResponseCache.createMirror(directory);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -52,6 +68,33 @@ public class WorkspacePreferenceClient extends AbstractHttpClient implements
     return this.executeGetRequest(url, new PreferenceFileResponseHandler(), monitor);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public IPreferenceFileStream openPreferenceFileStream(String url, IProgressMonitor monitor)
+      throws CoreException {
+    HttpResponseStream stream = this.executeStreamingGetRequest(url, monitor);
+    return new PreferenceFileStream(stream, stream.getEntityTag());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public IPreferenceFileStream openMirroredPreferenceFileStream(String url) {
+    HttpResponseStream stream = this.openCachedResponseStream(url);
+    return stream != null ? new PreferenceFileStream(stream, stream.getEntityTag()) : null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean hasMirror() {
+    return this.getResponseCache() != null;
+  }
+
   /**
    * A response handler that parses the response.
    */
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.workspaceconfig.core.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link AppliedContentLedger}.
+ */
+public class AppliedContentLedgerTest {
+
+  private static final String FIRST_URL = "http://server/first.epf";
+  private static final String SECOND_URL = "http://server/second.epf";
+  private static final String REPLACEMENTS = "replacements";
+
+  private File file;
+  private AppliedContentLedger ledger;
+
+  /**
+   * Creates an empty ledger.
+   *
+   * @throws IOException on error
+   */
+  @Before
+  public void setUp() throws IOException {
+    this.file = File.createTempFile("ledger", ".properties");
+    this.file.delete();
+    this.ledger = new AppliedContentLedger(this.file);
+  }
+
+  /**
+   * Deletes the file of the ledger.
+   */
+  @After
+  public void tearDown() {
+    this.file.delete();
+  }
+
+  /**
+   * Tests that the sources recorded count as applied in the same order only.
+   */
+  @Test
+  public void testSwappedSources() {
+    List<String> urlList = Arrays.asList(FIRST_URL, SECOND_URL);
+    String sources = AppliedContentLedger.getSourcesFingerprint(urlList);
+    this.ledger.record(FIRST_URL, "hash1", "\"v1\"", REPLACEMENTS, sources);
+    this.ledger.record(SECOND_URL, "hash2", "\"v2\"", REPLACEMENTS, sources);
+    assertTrue(this.ledger.isUnchanged(FIRST_URL, "\"v1\"", REPLACEMENTS, sources));
+    assertTrue(this.ledger.isApplied(SECOND_URL, "hash2", sources));
+
+    String swapped = AppliedContentLedger.getSourcesFingerprint(Arrays.asList(SECOND_URL, FIRST_URL));
+    assertFalse(this.ledger.isUnchanged(FIRST_URL, "\"v1\"", REPLACEMENTS, swapped));
+    assertFalse(this.ledger.isUnchanged(SECOND_URL, "\"v2\"", REPLACEMENTS, swapped));
+    assertFalse(this.ledger.isApplied(FIRST_URL, "hash1", swapped));
+    assertFalse(this.ledger.isApplied(SECOND_URL, "hash2", swapped));
+  }
+
+  /**
+   * Tests that the ledger survives being saved and loaded again.
+   *
+   * @throws IOException on error
+   */
+  @Test
+  public void testSaveAndLoad() throws IOException {
+    String sources = AppliedContentLedger.getSourcesFingerprint(Arrays.asList(FIRST_URL));
+    this.ledger.record(FIRST_URL, "hash1", null, REPLACEMENTS, sources);
+    this.ledger.save();
+
+    AppliedContentLedger loaded = new AppliedContentLedger(this.file);
+    assertTrue(loaded.isApplied(FIRST_URL, "hash1", sources));
+    // no validator, the content has to be looked at
+    assertFalse(loaded.isUnchanged(FIRST_URL, null, REPLACEMENTS, sources));
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.workspaceconfig.core.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.Properties;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.prefs.Preferences;
+
+import ch.netcetera.eclipse.common.io.IOUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link WorkspacePreferenceWriter}.
+ */
+public class WorkspacePreferenceWriterTest {
+
+  private static final String EPF_VERSION = "file_export_version=3.0\n";
+  private static final String SETTINGS_PATH = ".metadata/.plugins/org.eclipse.core.runtime/.settings";
+
+  private File workspace;
+  private File settings;
+
+  /**
+   * Creates an empty workspace.
+   *
+   * @throws IOException on error
+   */
+  @Before
+  public void setUp() throws IOException {
+    this.workspace = File.createTempFile("workspace", "");
+    this.workspace.delete();
+    this.settings = new File(this.workspace, SETTINGS_PATH);
+    assertTrue(this.settings.mkdirs());
+  }
+
+  /**
+   * Deletes the workspace.
+   */
+  @After
+  public void tearDown() {
+    delete(this.workspace);
+  }
+
+  /**
+   * Tests that the preferences are merged into the ones the workspace has.
+   *
+   * @throws Exception on error
+   */
+  @Test
+  public void testWriteMerged() throws Exception {
+    storePreferences("org.example.ui", "changed", "old", "kept", "live");
+    WorkspacePreferenceWriter writer = new WorkspacePreferenceWriter(readPreferences(EPF_VERSION
+        + "/instance/org.example.ui/added=new\n"
+        + "/instance/org.example.ui/changed=new\n"
+        + "/instance/org.example.ui/sub/node/nested=new\n"
+        + "/instance/org.example.core/other=new\n"));
+
+    PreferenceDelta delta = writer.write(this.workspace);
+
+    assertEquals(3, delta.getAddedCount());
+    assertEquals(1, delta.getChangedCount());
+    assertEquals(0, delta.getUnchangedCount());
+    Properties ui = loadPreferences("org.example.ui");
+    assertEquals(5, ui.size());
+    assertEquals("new", ui.getProperty("added"));
+    assertEquals("new", ui.getProperty("changed"));
+    assertEquals("live", ui.getProperty("kept"));
+    assertEquals("new", ui.getProperty("sub/node/nested"));
+    assertEquals("1", ui.getProperty("eclipse.preferences.version"));
+    assertEquals("new", loadPreferences("org.example.core").getProperty("other"));
+  }
+
+  /**
+   * Tests that keys containing a slash are separated from the path of their node by a double slash.
+   *
+   * @throws Exception on error
+   */
+  @Test
+  public void testKeyWithSlash() throws Exception {
+    assertEquals("key", WorkspacePreferenceWriter.encodePath("", "key"));
+    assertEquals("sub/key", WorkspacePreferenceWriter.encodePath("sub", "key"));
+    assertEquals("//a/key", WorkspacePreferenceWriter.encodePath("", "a/key"));
+    assertEquals("sub//a/key", WorkspacePreferenceWriter.encodePath("sub", "a/key"));
+    assertEquals("sub", WorkspacePreferenceWriter.decodePath("sub//a/key"));
+    assertEquals("sub/node", WorkspacePreferenceWriter.decodePath("sub/node/key"));
+    assertEquals("", WorkspacePreferenceWriter.decodePath("key"));
+
+    WorkspacePreferenceWriter writer = new WorkspacePreferenceWriter(readPreferences(EPF_VERSION
+        + "/instance/org.example.ui/sub//a/key=slash\n"));
+    writer.write(this.workspace);
+
+    assertEquals("slash", loadPreferences("org.example.ui").getProperty("sub//a/key"));
+  }
+
+  /**
+   * Tests that the keys below an export root that are not in the preferences are removed.
+   *
+   * @throws Exception on error
+   */
+  @Test
+  public void testExportRoot() throws Exception {
+    storePreferences("org.example.ui", "replaced", "old", "removed", "old", "sub/removed", "old");
+    storePreferences("org.example.core", "kept", "live");
+    WorkspacePreferenceWriter writer = new WorkspacePreferenceWriter(readPreferences(EPF_VERSION
+        + "\\!/instance/org.example.ui=\n"
+        + "/instance/org.example.ui/replaced=new\n"
+        + "/instance/org.example.core/added=new\n"));
+
+    writer.write(this.workspace);
+
+    Properties ui = loadPreferences("org.example.ui");
+    assertEquals(2, ui.size());
+    assertEquals("new", ui.getProperty("replaced"));
+    assertEquals("1", ui.getProperty("eclipse.preferences.version"));
+    Properties core = loadPreferences("org.example.core");
+    assertEquals("live", core.getProperty("kept"));
+    assertEquals("new", core.getProperty("added"));
+  }
+
+  /**
+   * Tests that a workspace in use is not written.
+   *
+   * @throws Exception on error
+   */
+  @Test
+  public void testWorkspaceInUse() throws Exception {
+    WorkspacePreferenceWriter writer = new WorkspacePreferenceWriter(readPreferences(EPF_VERSION
+        + "/instance/org.example.ui/added=new\n"));
+    RandomAccessFile lockFile = new RandomAccessFile(new File(this.workspace, ".metadata/.lock"), "rw");
+    try {
+      FileLock lock = lockFile.getChannel().lock();
+      try {
+        writer.write(this.workspace);
+        fail("the workspace is in use");
+      } catch (WorkspacePreferenceWriter.WorkspaceInUseException e) {
+        // expected
+      } finally {
+        lock.release();
+      }
+    } finally {
+      IOUtil.closeSilently(lockFile);
+    }
+    assertFalse(new File(this.settings, "org.example.ui.prefs").exists());
+  }
+
+  /**
+   * Tests that a file is replaced through a temporary file and left alone if nothing changes.
+   *
+   * @throws Exception on error
+   */
+  @Test
+  public void testReplaceFile() throws Exception {
+    storePreferences("org.example.ui", "changed", "old");
+    File temporaryFile = new File(this.settings, "org.example.ui.prefs.tmp");
+    assertTrue(temporaryFile.createNewFile());
+    WorkspacePreferenceWriter writer = new WorkspacePreferenceWriter(readPreferences(EPF_VERSION
+        + "/instance/org.example.ui/changed=new\n"));
+
+    writer.write(this.workspace);
+
+    assertFalse(temporaryFile.exists());
+    assertEquals("new", loadPreferences("org.example.ui").getProperty("changed"));
+    File file = new File(this.settings, "org.example.ui.prefs");
+    assertTrue(file.setLastModified(0L));
+
+    PreferenceDelta delta = writer.write(this.workspace);
+
+    assertEquals(1, delta.getUnchangedCount());
+    assertEquals(0L, file.lastModified());
+    assertFalse(temporaryFile.exists());
+  }
+
+  private static Preferences readPreferences(String epf) throws CoreException {
+    return Platform.getPreferencesService().readPreferences(new ByteArrayInputStream(epf.getBytes()))
+        .node(InstanceScope.SCOPE);
+  }
+
+  private void storePreferences(String qualifier, String... keysAndValues) throws IOException {
+    Properties properties = new Properties();
+    for (int i = 0; i < keysAndValues.length; i += 2) {
+      properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+    }
+    properties.setProperty("eclipse.preferences.version", "1");
+    OutputStream output = new FileOutputStream(new File(this.settings, qualifier + ".prefs"));
+    try {
+      properties.store(output, null);
+    } finally {
+      IOUtil.closeSilently(output);
+    }
+  }
+
+  private Properties loadPreferences(String qualifier) throws IOException {
+    Properties properties = new Properties();
+    InputStream input = new FileInputStream(new File(this.settings, qualifier + ".prefs"));
+    try {
+      properties.load(input);
+    } finally {
+      IOUtil.closeSilently(input);
+    }
+    return properties;
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+}
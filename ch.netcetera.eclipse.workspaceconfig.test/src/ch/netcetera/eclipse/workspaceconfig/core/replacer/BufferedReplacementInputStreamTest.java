@@ -68,7 +68,9 @@ public class BufferedReplacementInputStreamTest {
         new Object[]{"", null, ""},
         new Object[]{"aa\n", null, "aa"},
         new Object[]{"bba\nCCB\n", new TestStringReplacer("cc", "CC"), "bba\nccB"},
-        new Object[]{"data\n", new TestNullReplacer(), "data"}
+        new Object[]{"data\n", new TestNullReplacer(), "data"},
+        new Object[]{"a\nb\nc\n\nd\n", null, "a\r\nb\rc\n\nd"},
+        new Object[]{"CC\nCCc\n", new TestStringReplacer("cc", "CC"), "cc\r\nccc\r\n"}
         );
   }
 
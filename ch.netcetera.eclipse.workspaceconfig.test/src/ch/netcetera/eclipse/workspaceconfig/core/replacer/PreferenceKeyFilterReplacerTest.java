@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.workspaceconfig.core.replacer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import ch.netcetera.eclipse.common.io.IOUtil;
+import ch.netcetera.eclipse.workspaceconfig.core.PreferenceKeyFilter;
+import ch.netcetera.eclipse.workspaceconfig.core.internal.BufferedReplacementInputStream;
+import ch.netcetera.eclipse.workspaceconfig.core.internal.PreferenceKeyFilterReplacer;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link PreferenceKeyFilterReplacer}.
+ */
+@RunWith(Parameterized.class)
+public class PreferenceKeyFilterReplacerTest {
+
+  private static final String ENCODING = "ISO-8859-1";
+
+  private static final String HEADER = "#Mon Jan 06 10:00:00 CET 2014\nfile_export_version=3.0\n";
+
+  private final String expected;
+  private final PreferenceKeyFilter filter;
+  private final String input;
+
+  /**
+   * Constructor.
+   *
+   * @param expected the expected result
+   * @param filter the filter to use
+   * @param input the input
+   */
+  public PreferenceKeyFilterReplacerTest(String expected, PreferenceKeyFilter filter, String input) {
+    this.expected = expected;
+    this.filter = filter;
+    this.input = input;
+  }
+
+  /**
+   * Initializes the test data.
+   *
+   * @return the test data
+   */
+  @Parameters
+  public static List<Object[]> data() {
+    String epf = HEADER
+        + "@org.eclipse.jdt.core=3.8.0\n"
+        + "/instance/org.eclipse.jdt.core/org.eclipse.jdt.core.formatter.tabulation.char=space\n"
+        + "/instance/org.eclipse.jdt.core/org.eclipse.jdt.core.compiler.source=1.6\n"
+        + "/instance/org.eclipse.ui.editors/lineNumberRuler=true\n"
+        + "/configuration/org.eclipse.ui.ide/MAX_RECENT_WORKSPACES=5\n";
+    return Arrays.asList(
+        new Object[]{epf, PreferenceKeyFilter.NONE, epf},
+        new Object[]{HEADER
+            + "@org.eclipse.jdt.core=3.8.0\n"
+            + "/instance/org.eclipse.jdt.core/org.eclipse.jdt.core.formatter.tabulation.char=space\n",
+            filter(Arrays.asList("org.eclipse.jdt.core/org.eclipse.jdt.core.formatter.*"), null), epf},
+        new Object[]{HEADER
+            + "@org.eclipse.jdt.core=3.8.0\n"
+            + "/instance/org.eclipse.jdt.core/org.eclipse.jdt.core.formatter.tabulation.char=space\n"
+            + "/instance/org.eclipse.jdt.core/org.eclipse.jdt.core.compiler.source=1.6\n"
+            + "/configuration/org.eclipse.ui.ide/MAX_RECENT_WORKSPACES=5\n",
+            filter(null, Arrays.asList("org.eclipse.ui.editors/")), epf},
+        new Object[]{HEADER
+            + "@org.eclipse.jdt.core=3.8.0\n"
+            + "/instance/org.eclipse.jdt.core/org.eclipse.jdt.core.compiler.source=1.6\n",
+            filter(Arrays.asList("org.eclipse.jdt."),
+                Arrays.asList("org.eclipse.jdt.core/org.eclipse.jdt.core.formatter")), epf},
+        // continuation lines belong to the preference they continue
+        new Object[]{"/instance/a/kept=1\\\n  2\n",
+            filter(Arrays.asList("a/"), null),
+            "/instance/a/kept=1\\\n  2\n/instance/b/dropped=1\\\n  2\\\\\n/instance/b/dropped=3\n"},
+        // escaped keys and export root markers
+        new Object[]{"/instance/a/x\\:y=1\n",
+            filter(Arrays.asList("a/x:"), null),
+            "\\!/instance/a=\n/instance/a/x\\:y=1\n/instance/a/xy=1\n"}
+        );
+  }
+
+  private static PreferenceKeyFilter filter(List<String> includes, List<String> excludes) {
+    return new PreferenceKeyFilter(includes != null ? includes : Collections.<String>emptyList(),
+        excludes != null ? excludes : Collections.<String>emptyList());
+  }
+
+  /**
+   * Tests {@link PreferenceKeyFilterReplacer#replace(String)} through a
+   * {@link BufferedReplacementInputStream}.
+   *
+   * @throws IOException on error
+   */
+  @Test
+  public void testFilter() throws IOException {
+    InputStream stream = null;
+    try {
+      stream = new BufferedReplacementInputStream(new PreferenceKeyFilterReplacer(this.filter, null),
+          new ByteArrayInputStream(this.input.getBytes(ENCODING)));
+      ByteArrayOutputStream result = new ByteArrayOutputStream();
+      byte[] buffer = new byte[16];
+      int read;
+      while ((read = stream.read(buffer)) != -1) { // NOPMD assignment in operand is ok
+        result.write(buffer, 0, read);
+      }
+      assertEquals(this.expected, result.toString(ENCODING));
+    } finally {
+      IOUtil.closeSilently(stream);
+    }
+  }
+}
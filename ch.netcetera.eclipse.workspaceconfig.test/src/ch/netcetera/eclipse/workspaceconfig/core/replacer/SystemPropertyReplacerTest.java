@@ -66,7 +66,15 @@ public class SystemPropertyReplacerTest {
         new Object[]{"v1 v2",
             new HashMap<String, String>() { { put("junit1", "v1"); put("junit2", "v2"); } }, // NOPMD
             "$junit1 $junit2"},
-        new Object[]{"$foo", new HashMap<String, String>() { { put("junit2", "v1"); } }, "$foo"}); // NOPMD
+        new Object[]{"$foo", new HashMap<String, String>() { { put("junit2", "v1"); } }, "$foo"}, // NOPMD
+        new Object[]{"a$1\\b", new HashMap<String, String>() { { put("junit1", "$1\\"); } }, "a$junit1b"}, // NOPMD
+        new Object[]{"long short",
+            new HashMap<String, String>() { { put("junit.a", "short"); put("junit.ab", "long"); } }, // NOPMD
+            "$junit.ab $junit.a"},
+        new Object[]{"$junitXa", new HashMap<String, String>() { { put("junit.a", "v1"); } }, "$junitXa"}, // NOPMD
+        new Object[]{"$junit2 v2",
+            new HashMap<String, String>() { { put("junit1", "$junit2"); put("junit2", "v2"); } }, // NOPMD
+            "$junit1 $junit2"});
   }
 
   /**
@@ -15,13 +15,13 @@ package ch.netcetera.eclipse.workspaceconfig.ui;
 import java.util.Collections;
 import java.util.List;
 
-import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.wizard.Wizard;
 import org.eclipse.ui.IImportWizard;
 import org.eclipse.ui.IWorkbench;
 
-import ch.netcetera.eclipse.workspaceconfig.core.IPreferencesImportService;
+import ch.netcetera.eclipse.workspaceconfig.ui.handler.WorkspaceConfigurationImportJob;
 import ch.netcetera.eclipse.workspaceconfig.ui.preferences.ConfigurationUtil;
 
 /**
@@ -52,19 +52,17 @@ public class RemotePreferencesImportWizard extends Wizard implements IImportWiza
   @Override
   public boolean performFinish() {
     List<String> importUrlList = this.wizardPage.getImportUrlList();
-    IPreferencesImportService service = WorkspaceConfigurationUIPlugin.getDefault().getPreferencesImportService();
-    
+
     List<String> variableSubstitutionList = Collections.<String>emptyList();
     if (this.wizardPage.doVariableSubstitution()) {
       variableSubstitutionList = ConfigurationUtil.getEnvReplacements();
     }
       
-    for (String string : importUrlList) {
-     IStatus status = service.importConfigFile(string, variableSubstitutionList);
-      if (!status.isOK()) {
-        WorkspaceConfigurationUIPlugin.getDefault().getLog().log(status);
-      }
-    }
+    Job job = new WorkspaceConfigurationImportJob(
+        WorkspaceConfigurationUIPlugin.getDefault().getText("import.job.name"), importUrlList,
+        variableSubstitutionList, false);
+    job.setUser(true);
+    job.schedule();
     return true;
   }
 }
@@ -12,16 +12,11 @@
  */
 package ch.netcetera.eclipse.workspaceconfig.ui.handler;
 
-import java.util.List;
-
 import org.eclipse.core.commands.AbstractHandler;
 import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
-import org.osgi.framework.FrameworkUtil;
+import org.eclipse.core.runtime.jobs.Job;
 
-import ch.netcetera.eclipse.workspaceconfig.core.IPreferencesImportService;
 import ch.netcetera.eclipse.workspaceconfig.ui.WorkspaceConfigurationUIPlugin;
 import ch.netcetera.eclipse.workspaceconfig.ui.preferences.ConfigurationUtil;
 
@@ -44,30 +39,14 @@ public class ImportWorkspaceConfigurationHandler extends AbstractHandler {
   }
 
   /**
-   * Fetches and imports the workspace settings.
+   * Schedules the job that fetches and imports the workspace settings. The job takes the EPF URLs
+   * configured when it runs, so the EPF URL providers are not resolved on the UI thread.
    */
   private void applySettings() {
-    String bundleId = FrameworkUtil.getBundle(getClass()).getSymbolicName();
-
-    IPreferencesImportService service = WorkspaceConfigurationUIPlugin.getDefault().getPreferencesImportService();
-    IStatus status = Status.OK_STATUS;
-  
-    if (service != null) {
-      List<String> urlList = ConfigurationUtil.getEpfUrls();
-      List<String> replacementList = ConfigurationUtil.getEnvReplacements();
-      for (String url : urlList) {
-        status = service.importConfigFile(url, replacementList);
-        if (!status.isOK()) {
-          logStatus(status);
-          status = Status.OK_STATUS;
-        }
-      }
-    } else {
-      logStatus(new Status(IStatus.ERROR, bundleId, "could not obtain service reference of IPreferencesImportService"));
-    }
-  }
-
-  private void logStatus(IStatus status) {
-    WorkspaceConfigurationUIPlugin.getDefault().getLog().log(status);
+    Job job = new WorkspaceConfigurationImportJob(
+        WorkspaceConfigurationUIPlugin.getDefault().getText("import.job.name"),
+        ConfigurationUtil.getEnvReplacements());
+    job.setUser(true);
+    job.schedule();
   }
 }
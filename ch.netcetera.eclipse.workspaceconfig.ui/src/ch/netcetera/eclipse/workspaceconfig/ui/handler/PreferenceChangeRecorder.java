@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.workspaceconfig.ui.handler;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.INodeChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.NodeChangeEvent;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
+import org.eclipse.core.runtime.preferences.IPreferenceNodeVisitor;
+import org.osgi.service.prefs.BackingStoreException;
+import org.osgi.service.prefs.Preferences;
+
+/**
+ * Records the changes of the preferences below a node by listening to the preference and node
+ * changes while recording. Only the preferences that change are kept, each with the value it had
+ * before its first change and the value after its last change.
+ */
+final class PreferenceChangeRecorder implements IPreferenceChangeListener, INodeChangeListener {
+
+  private static final String PATH_SEPARATOR = "/";
+
+  private final List<IEclipsePreferences> nodes = new ArrayList<IEclipsePreferences>();
+  private final Map<String, Change> changes = new LinkedHashMap<String, Change>();
+  private final List<String> removedNodes = new ArrayList<String>();
+  private boolean recording;
+
+  /**
+   * Starts recording the changes of the preferences below the node passed.
+   *
+   * @param root the root node of the preferences to record
+   * @throws BackingStoreException if the nodes cannot be read
+   */
+  synchronized void start(IEclipsePreferences root) throws BackingStoreException {
+    this.changes.clear();
+    this.removedNodes.clear();
+    this.recording = true;
+    addListeners(root);
+  }
+
+  /**
+   * Stops recording and removes the listeners from all nodes still alive.
+   */
+  synchronized void stop() {
+    this.recording = false;
+    for (IEclipsePreferences node : this.nodes) {
+      try {
+        node.removePreferenceChangeListener(this);
+        node.removeNodeChangeListener(this);
+      } catch (IllegalStateException e) {
+        // the node has been removed in the meantime, its listeners are gone with it
+      }
+    }
+    this.nodes.clear();
+  }
+
+  private void addListeners(IEclipsePreferences root) throws BackingStoreException {
+    root.accept(new IPreferenceNodeVisitor() {
+
+      /** {@inheritDoc} */
+      @Override
+      public boolean visit(IEclipsePreferences node) {
+        node.addPreferenceChangeListener(PreferenceChangeRecorder.this);
+        node.addNodeChangeListener(PreferenceChangeRecorder.this);
+        PreferenceChangeRecorder.this.nodes.add(node);
+        return true;
+      }
+    });
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void preferenceChange(PreferenceChangeEvent event) {
+    String key = event.getNode().absolutePath() + PATH_SEPARATOR + event.getKey();
+    Change change = this.changes.get(key);
+    if (change == null) {
+      change = new Change(toString(event.getOldValue()));
+      this.changes.put(key, change);
+    }
+    change.newValue = toString(event.getNewValue());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void added(NodeChangeEvent event) {
+    Preferences child = event.getChild();
+    if (this.recording && child instanceof IEclipsePreferences) {
+      try {
+        addListeners((IEclipsePreferences) child);
+      } catch (BackingStoreException e) {
+        // the preferences of the new node are not recorded
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void removed(NodeChangeEvent event) {
+    this.removedNodes.add(event.getChild().absolutePath());
+  }
+
+  private static String toString(Object value) {
+    return value == null ? null : value.toString();
+  }
+
+  /**
+   * Gets the preferences that did not exist before the recording, with their current value.
+   *
+   * @return the preferences added by absolute path and key
+   */
+  synchronized Map<String, String> getAdded() {
+    Map<String, String> added = new LinkedHashMap<String, String>();
+    for (Map.Entry<String, Change> entry : this.changes.entrySet()) {
+      Change change = entry.getValue();
+      if (change.oldValue == null && change.newValue != null) {
+        added.put(entry.getKey(), change.newValue);
+      }
+    }
+    return added;
+  }
+
+  /**
+   * Gets the preferences that have been removed during the recording, with the value they had.
+   *
+   * @return the preferences removed by absolute path and key
+   */
+  synchronized Map<String, String> getRemoved() {
+    Map<String, String> removed = new LinkedHashMap<String, String>();
+    for (Map.Entry<String, Change> entry : this.changes.entrySet()) {
+      Change change = entry.getValue();
+      if (change.oldValue != null && change.newValue == null) {
+        removed.put(entry.getKey(), change.oldValue);
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Gets the preferences whose value has changed during the recording, with their current value.
+   * Preferences that have been set back to their original value are left out.
+   *
+   * @return the preferences changed by absolute path and key
+   */
+  synchronized Map<String, String> getChanged() {
+    Map<String, String> changed = new LinkedHashMap<String, String>();
+    for (Map.Entry<String, Change> entry : this.changes.entrySet()) {
+      Change change = entry.getValue();
+      if (change.oldValue != null && change.newValue != null && !change.oldValue.equals(change.newValue)) {
+        changed.put(entry.getKey(), change.newValue);
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Gets the nodes that have been removed during the recording. The preferences of a removed node
+   * are not reported one by one.
+   *
+   * @return the absolute paths of the nodes removed
+   */
+  synchronized List<String> getRemovedNodes() {
+    return new ArrayList<String>(this.removedNodes);
+  }
+
+  /**
+   * The change of a single preference.
+   */
+  private static final class Change {
+
+    private final String oldValue;
+    private String newValue;
+
+    Change(String oldValue) {
+      this.oldValue = oldValue;
+    }
+  }
+}
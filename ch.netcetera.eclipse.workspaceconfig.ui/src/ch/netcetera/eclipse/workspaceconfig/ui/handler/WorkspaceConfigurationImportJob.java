@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.workspaceconfig.ui.handler;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.MessageBox;
+import org.eclipse.ui.IWorkbenchWindow;
+import org.eclipse.ui.PlatformUI;
+import org.osgi.framework.FrameworkUtil;
+
+import ch.netcetera.eclipse.common.scheduling.MutexSchedulingRule;
+import ch.netcetera.eclipse.workspaceconfig.core.IPreferencesImportService;
+import ch.netcetera.eclipse.workspaceconfig.core.PreferenceKeyFilter;
+import ch.netcetera.eclipse.workspaceconfig.ui.WorkspaceConfigurationUIPlugin;
+import ch.netcetera.eclipse.workspaceconfig.ui.preferences.ConfigurationUtil;
+import ch.netcetera.eclipse.workspaceconfig.ui.util.WorkspaceConfigurationStatusUtil;
+
+/**
+ * Job that imports the remote workspace configuration files. The files are fetched and applied in
+ * the background, only the error dialog is shown on the UI thread. Only the preference keys passing
+ * the configured key patterns are imported.
+ *
+ * <p>
+ * Remote files are applied from the local mirror first, so the import does not wait for the
+ * servers. Once that is done, a second job revalidates the files against the servers and applies
+ * them again if they have changed.
+ * </p>
+ */
+public class WorkspaceConfigurationImportJob extends Job {
+
+  /** Makes sure only one import runs at a time and that an import waits for a prefetch running. */
+  static final ISchedulingRule RULE = new MutexSchedulingRule();
+
+  private final List<String> urlList;
+  private final List<String> replacementList;
+  private final boolean startup;
+  private final boolean fromMirror;
+
+  /**
+   * Constructor for an import of the EPF URLs configured. They are looked up when the job runs,
+   * including the URLs of the EPF URL providers.
+   *
+   * @param name the human readable job name
+   * @param replacementList the system property replacements to do during the import
+   */
+  public WorkspaceConfigurationImportJob(String name, List<String> replacementList) {
+    this(name, null, replacementList, false, true);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param name the human readable job name
+   * @param urlList the URLs of the configuration files to import
+   * @param replacementList the system property replacements to do during the import
+   * @param startup {@code true} if the import has been confirmed at startup, the configuration status
+   *          of the workspace is then written once the import is done
+   */
+  public WorkspaceConfigurationImportJob(String name, List<String> urlList, List<String> replacementList,
+      boolean startup) {
+    this(name, urlList, replacementList, startup, true);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param name the human readable job name
+   * @param urlList the URLs of the configuration files to import or {@code null} for the EPF URLs
+   *          configured when the job runs
+   * @param replacementList the system property replacements to do during the import
+   * @param startup {@code true} if the import has been confirmed at startup
+   * @param fromMirror {@code true} to apply the local mirror of the remote files and revalidate them
+   *          afterwards, {@code false} to revalidate them right away
+   */
+  private WorkspaceConfigurationImportJob(String name, List<String> urlList, List<String> replacementList,
+      boolean startup, boolean fromMirror) {
+    super(name);
+    this.urlList = urlList;
+    this.replacementList = replacementList;
+    this.startup = startup;
+    this.fromMirror = fromMirror;
+    setRule(RULE);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected IStatus run(IProgressMonitor monitor) {
+    try {
+      List<String> urls = this.urlList != null ? this.urlList : ConfigurationUtil.getResolvedEpfUrls();
+      IStatus status = importConfigFiles(urls, monitor);
+      if (status.matches(IStatus.CANCEL) || monitor.isCanceled()) {
+        // the workspace is left unconfigured, so the import is offered again next time
+        return Status.CANCEL_STATUS;
+      }
+      if (this.startup && status.matches(IStatus.ERROR)) {
+        WorkspaceConfigurationStatusUtil.writeErrorFlag();
+      } else if (this.startup) {
+        // warnings, e.g. when a file has been read from the local mirror, still leave a configured workspace
+        WorkspaceConfigurationStatusUtil.writeConfiguredFlag();
+      }
+      if (!status.isOK()) {
+        WorkspaceConfigurationUIPlugin.getDefault().getLog().log(status);
+      }
+      if (status.matches(IStatus.ERROR)) {
+        displayErrorDialog();
+      }
+      if (this.fromMirror) {
+        scheduleRevalidation(urls);
+      }
+      // the status has been reported already, returning it would show a second dialog
+      return Status.OK_STATUS;
+    } finally {
+      monitor.done();
+    }
+  }
+
+  private IStatus importConfigFiles(List<String> urls, IProgressMonitor monitor) {
+    IPreferencesImportService service = WorkspaceConfigurationUIPlugin.getDefault().getPreferencesImportService();
+    if (service == null) {
+      String bundleId = FrameworkUtil.getBundle(getClass()).getSymbolicName();
+      return new Status(IStatus.ERROR, bundleId, "could not obtain service reference of IPreferencesImportService");
+    }
+    PreferenceKeyFilter keyFilter = ConfigurationUtil.getPreferenceKeyFilter();
+    if (this.fromMirror) {
+      return service.importMirroredConfigFiles(urls, this.replacementList, keyFilter, monitor);
+    }
+    return service.importConfigFiles(urls, this.replacementList, keyFilter, monitor);
+  }
+
+  /**
+   * Schedules the job that revalidates the files against the servers. Files that have not changed
+   * are not applied again.
+   *
+   * @param urls the URLs of the configuration files imported
+   */
+  private void scheduleRevalidation(List<String> urls) {
+    Job revalidation = new WorkspaceConfigurationImportJob(getName(), urls, this.replacementList, false, false);
+    revalidation.setSystem(true);
+    revalidation.schedule();
+  }
+
+  /**
+   * Displays an error dialog that the import failed.
+   */
+  private void displayErrorDialog() {
+    if (!PlatformUI.isWorkbenchRunning()) {
+      return;
+    }
+    final Display display = PlatformUI.getWorkbench().getDisplay();
+    display.asyncExec(new Runnable() {
+
+      /** {@inheritDoc} */
+      @Override
+      public void run() {
+        IWorkbenchWindow window = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
+        if (window == null) {
+          return;
+        }
+        MessageBox errorDialog = new MessageBox(window.getShell(), SWT.ERROR);
+        errorDialog.setText(WorkspaceConfigurationUIPlugin.getDefault().getText(
+            "startup.handler.resultdialog.title.error"));
+        errorDialog.setMessage(WorkspaceConfigurationUIPlugin.getDefault().getText(
+            "startup.handler.resultdialog.text.error"));
+        errorDialog.open();
+      }
+    });
+  }
+}
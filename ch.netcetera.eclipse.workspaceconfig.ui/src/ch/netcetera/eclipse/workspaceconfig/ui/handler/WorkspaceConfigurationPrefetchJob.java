@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.workspaceconfig.ui.handler;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import ch.netcetera.eclipse.workspaceconfig.core.IPreferencesImportService;
+import ch.netcetera.eclipse.workspaceconfig.ui.WorkspaceConfigurationUIPlugin;
+
+/**
+ * Job that fetches the remote workspace configuration files into the local mirror while the user
+ * decides whether to import them. An import scheduled meanwhile waits for the prefetch and then
+ * applies the files from the local mirror. If the user declines, the job is canceled and the
+ * downloads in flight are aborted.
+ */
+class WorkspaceConfigurationPrefetchJob extends Job {
+
+  private final List<String> urlList;
+
+  /**
+   * Constructor.
+   *
+   * @param name the human readable job name
+   * @param urlList the URLs of the configuration files to fetch
+   */
+  WorkspaceConfigurationPrefetchJob(String name, List<String> urlList) {
+    super(name);
+    this.urlList = urlList;
+    setRule(WorkspaceConfigurationImportJob.RULE);
+    setSystem(true);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected IStatus run(IProgressMonitor monitor) {
+    try {
+      IPreferencesImportService service = WorkspaceConfigurationUIPlugin.getDefault().getPreferencesImportService();
+      if (service == null) {
+        // the import reports the missing service
+        return Status.OK_STATUS;
+      }
+      service.prefetchConfigFiles(this.urlList, monitor);
+      // failures are not reported, the import fetches the files again and reports them
+      return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+    } finally {
+      monitor.done();
+    }
+  }
+}
@@ -12,20 +12,19 @@
  */
 package ch.netcetera.eclipse.workspaceconfig.ui.handler;
 
-import org.eclipse.core.commands.common.CommandException;
-import org.eclipse.core.runtime.ILog;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.dialogs.MessageDialog;
-import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Image;
-import org.eclipse.swt.widgets.MessageBox;
 import org.eclipse.ui.IStartup;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PlatformUI;
-import org.eclipse.ui.handlers.IHandlerService;
 import org.osgi.framework.FrameworkUtil;
 
 import ch.netcetera.eclipse.workspaceconfig.ui.PluginImages;
@@ -47,24 +46,57 @@ public class WorkspaceStartupHandler implements IStartup {
   /** Dialog result to skip the configuration. */
   protected static final int DO_NOT_IMPORT_CONFIG = 1;
 
-  /** {@inheritDoc} */
+  /**
+   * Schedules the resolution of the EPF URL providers and the check for a new workspace, so the
+   * other early startup extensions do not wait for them and the UI finds the URLs of the providers
+   * resolved.
+   */
   @Override
   public void earlyStartup() {
+    ConfigurationUtil.scheduleEpfUrlProviderResolution();
+    Job job = new Job(WorkspaceConfigurationUIPlugin.getDefault().getText("startup.job.name")) {
+
+      /** {@inheritDoc} */
+      @Override
+      protected IStatus run(IProgressMonitor monitor) {
+        checkWorkspace();
+        return Status.OK_STATUS;
+      }
+    };
+    job.setSystem(true);
+    job.schedule();
+  }
+
+  /**
+   * Checks whether a new workspace is started and offers to import the remote configuration. The
+   * cheap checks come first, the EPF URLs are only looked up for new workspaces, once the providers
+   * have been resolved.
+   */
+  private void checkWorkspace() {
     final IWorkbench workbench = PlatformUI.getWorkbench();
     final String bundleId = FrameworkUtil.getBundle(getClass()).getSymbolicName();
-    boolean isNewWorkspace = WorkspaceConfigurationStatusUtil.isNewWorkspace();
     boolean checkEnabled = Platform.getPreferencesService().getBoolean(bundleId,
         WorkspaceConfigurationConstants.CONFIG_STARTUP_CHECK, true, null);
-    boolean urlConfigured = ConfigurationUtil.isEpfUrlConfigured();
 
-    if (checkEnabled && isNewWorkspace && urlConfigured) {
+    if (!checkEnabled || !WorkspaceConfigurationStatusUtil.isNewWorkspace()) {
+      return;
+    }
+    final List<String> epfUrls = ConfigurationUtil.getResolvedEpfUrls();
+    if (!epfUrls.isEmpty() && !workbench.isClosing()) {
+
+      // fetch the files while the user reads the dialog
+      final Job prefetchJob = new WorkspaceConfigurationPrefetchJob(
+          WorkspaceConfigurationUIPlugin.getDefault().getText("prefetch.job.name"), epfUrls);
+      prefetchJob.schedule();
 
       workbench.getDisplay().asyncExec(new Runnable() {
 
         @Override
         public void run() {
           IWorkbenchWindow window = workbench.getActiveWorkbenchWindow();
-          if (window != null) {
+          if (window == null) {
+            prefetchJob.cancel();
+          } else {
             String[] buttonLabels = new String[] {
                 WorkspaceConfigurationUIPlugin.getDefault().getText("startup.handler.dialog.button.yes"),
                 WorkspaceConfigurationUIPlugin.getDefault().getText("startup.handler.dialog.button.no"),
@@ -79,40 +111,27 @@ public class WorkspaceStartupHandler implements IStartup {
 
             if (result == IMPORT_CONFIG) {
               applySettings();
-              WorkspaceConfigurationStatusUtil.writeConfiguredFlag();
-            } else if (result == DO_NOT_IMPORT_CONFIG) {
-              WorkspaceConfigurationStatusUtil.writeNoConfigFlag();
+            } else {
+              // declined or asked again: the files fetched so far stay in the local mirror
+              prefetchJob.cancel();
+              if (result == DO_NOT_IMPORT_CONFIG) {
+                WorkspaceConfigurationStatusUtil.writeNoConfigFlag();
+              }
             }
-            // else: do nothing
           }
         }
 
+        /**
+         * Schedules the import, the configuration status is written by the job once it is done. The
+         * import waits for the prefetch and applies the files fetched from the local mirror.
+         */
         private void applySettings() {
-          IHandlerService service = (IHandlerService) workbench.getService(IHandlerService.class);
-          try {
-            service.executeCommand(ImportWorkspaceConfigurationHandler.COMMAND_ID, null);
-          } catch (CommandException e) {
-            ILog log = WorkspaceConfigurationUIPlugin.getDefault().getLog();
-            log.log(new Status(IStatus.ERROR, bundleId, "applying settings failed", e));
-            displayErrorDialog();
-          }
+          Job job = new WorkspaceConfigurationImportJob(
+              WorkspaceConfigurationUIPlugin.getDefault().getText("import.job.name"),
+              epfUrls, ConfigurationUtil.getEnvReplacements(), true);
+          job.schedule();
         }
       });
     }
   }
-  
-  /**
-   * Displays an error dialog that the import failed.
-   */
-  private void displayErrorDialog() {
-    WorkspaceConfigurationStatusUtil.writeErrorFlag();
-    MessageBox errorDialog = new MessageBox(
-        WorkspaceConfigurationUIPlugin.getDefault().getWorkbench().getActiveWorkbenchWindow().getShell(),
-        SWT.ERROR);
-    errorDialog.setText(WorkspaceConfigurationUIPlugin.getDefault().getText(
-        "startup.handler.resultdialog.title.error"));
-    errorDialog.setMessage(WorkspaceConfigurationUIPlugin.getDefault().getText(
-        "startup.handler.resultdialog.text.error"));
-    errorDialog.open();
-  }
 }
\ No newline at end of file
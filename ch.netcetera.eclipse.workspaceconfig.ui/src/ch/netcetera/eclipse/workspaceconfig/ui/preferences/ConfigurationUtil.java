@@ -13,15 +13,27 @@
 package ch.netcetera.eclipse.workspaceconfig.ui.preferences;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.preferences.ConfigurationScope;
 import org.eclipse.core.runtime.preferences.DefaultScope;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
+import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.osgi.framework.FrameworkUtil;
 
+import ch.netcetera.eclipse.workspaceconfig.core.PreferenceKeyFilter;
+import ch.netcetera.eclipse.workspaceconfig.ui.WorkspaceConfigurationUIPlugin;
+
 
 
 /**
@@ -31,6 +43,10 @@ import org.osgi.framework.FrameworkUtil;
  * of this plugin. In contrast, the term preferences is used for the handling of the import
  * operations performed by this plugin.
  * </p>
+ * <p>
+ * The lists are parsed once and kept as immutable snapshots until the preferences they are parsed
+ * from change, so reading them does neither parse XML nor allocate.
+ * </p>
  */
 public final class ConfigurationUtil {
 
@@ -39,6 +55,59 @@ public final class ConfigurationUtil {
   private static ConfigurationXMLMarshaler marshaler = new ConfigurationXMLMarshaler();
   private static ConfigurationXmlParser parser = new ConfigurationXmlParser();
 
+  private static final CachedList EPF_URLS = new CachedList(WorkspaceConfigurationConstants.CONFIG_URL) {
+
+    /** {@inheritDoc} */
+    @Override
+    List<String> parse(String xml) throws IOException {
+      return parser.parseEpfUrlList(xml);
+    }
+  };
+
+  private static final CachedList ENV_REPLACEMENTS =
+      new CachedList(WorkspaceConfigurationConstants.CONFIG_ENV_REPLACEMENT_LIST) {
+
+    /** {@inheritDoc} */
+    @Override
+    List<String> parse(String xml) throws IOException {
+      return parser.parseEnvVarList(xml);
+    }
+  };
+
+  private static final Map<String, CachedList> CACHED_LISTS = new HashMap<String, CachedList>();
+
+  static {
+    CACHED_LISTS.put(EPF_URLS.key, EPF_URLS);
+    CACHED_LISTS.put(ENV_REPLACEMENTS.key, ENV_REPLACEMENTS);
+    for (String key : new String[] {WorkspaceConfigurationConstants.CONFIG_KEY_INCLUDE_LIST,
+        WorkspaceConfigurationConstants.CONFIG_KEY_EXCLUDE_LIST}) {
+      CACHED_LISTS.put(key, new CachedList(key) {
+
+        /** {@inheritDoc} */
+        @Override
+        List<String> parse(String xml) throws IOException {
+          return parser.parseKeyPatternList(xml);
+        }
+      });
+    }
+
+    // the lists are looked up in the instance, configuration and default scope
+    IPreferenceChangeListener listener = new IPreferenceChangeListener() {
+
+      /** {@inheritDoc} */
+      @Override
+      public void preferenceChange(PreferenceChangeEvent event) {
+        CachedList cachedList = CACHED_LISTS.get(event.getKey());
+        if (cachedList != null) {
+          cachedList.invalidate();
+        }
+      }
+    };
+    InstanceScope.INSTANCE.getNode(bundleSymbolicName).addPreferenceChangeListener(listener);
+    ConfigurationScope.INSTANCE.getNode(bundleSymbolicName).addPreferenceChangeListener(listener);
+    DefaultScope.INSTANCE.getNode(bundleSymbolicName).addPreferenceChangeListener(listener);
+  }
+
   /**
    * Not instantiable.
    */
@@ -64,18 +133,51 @@ public final class ConfigurationUtil {
 
 
   /**
-   * Gets the EPF URLs from the preference store.
+   * Adds EPF URLs to the default EPF URLs in the preference store.
    *
-   * @return the EPF URLs from the preference store
+   * @param epfUrls the EPF URLs to add
    */
-  public static List<String> getEpfUrls() {
-    String xml = Platform.getPreferencesService().getString(bundleSymbolicName,
-        WorkspaceConfigurationConstants.CONFIG_URL, "", null);
+  static void addDefaultEpfUrls(Collection<String> epfUrls) {
+    Set<String> defaultEpfUrls = new LinkedHashSet<String>();
     try {
-      return parser.parseEpfUrlList(xml);
+      defaultEpfUrls.addAll(parser.parseEpfUrlList(getPreferences().get(WorkspaceConfigurationConstants.CONFIG_URL,
+          "")));
     } catch (IOException e) {
-      return Collections.emptyList();
+      // there are no default EPF URLs yet
     }
+    defaultEpfUrls.addAll(epfUrls);
+    saveEpfUrls(defaultEpfUrls);
+  }
+
+  /**
+   * Gets the EPF URLs from the preference store. The URLs of the EPF URL providers are among them
+   * once the providers have been resolved, see {@link #scheduleEpfUrlProviderResolution()}. The
+   * providers are not resolved here, so this can be called on the UI thread.
+   *
+   * @return the EPF URLs from the preference store
+   */
+  public static List<String> getEpfUrls() {
+    return EPF_URLS.get();
+  }
+
+  /**
+   * Gets the EPF URLs from the preference store including the URLs of the EPF URL providers. The
+   * providers are resolved first unless this has been done already, which activates the bundles
+   * contributing them and waits for a resolution running. Must not be called on the UI thread.
+   *
+   * @return the EPF URLs from the preference store
+   */
+  public static List<String> getResolvedEpfUrls() {
+    EpfUrlProviderResolver.resolve();
+    return EPF_URLS.get();
+  }
+
+  /**
+   * Schedules a system job that resolves the EPF URL providers and adds their URLs to the default
+   * EPF URLs.
+   */
+  public static void scheduleEpfUrlProviderResolution() {
+    EpfUrlProviderResolver.schedule(WorkspaceConfigurationUIPlugin.getDefault().getText("provider.job.name"));
   }
 
   /**
@@ -100,13 +202,49 @@ public final class ConfigurationUtil {
    * @return the JVM environment variables to substitute
    */
   public static List<String> getEnvReplacements() {
-    String xml = Platform.getPreferencesService().getString(bundleSymbolicName,
-        WorkspaceConfigurationConstants.CONFIG_ENV_REPLACEMENT_LIST, "", null);
+    return ENV_REPLACEMENTS.get();
+  }
+
+  /**
+   * Saves the preference key patterns passed in the preference store.
+   *
+   * @param configKey the configuration key of the pattern list, either
+   *          {@link WorkspaceConfigurationConstants#CONFIG_KEY_INCLUDE_LIST} or
+   *          {@link WorkspaceConfigurationConstants#CONFIG_KEY_EXCLUDE_LIST}
+   * @param keyPatterns the preference key patterns to save
+   */
+  static void saveKeyPatterns(String configKey, Collection<String> keyPatterns) {
+    String xml = "";
     try {
-      return parser.parseEnvVarList(xml);
+      xml = marshaler.marshalKeyPatternList(keyPatterns);
     } catch (IOException e) {
-      return Collections.emptyList();
+      // don't do anything...
     }
+
+    getPreferences().put(configKey, xml);
+  }
+
+  /**
+   * Gets preference key patterns from the preference store.
+   *
+   * @param configKey the configuration key of the pattern list, either
+   *          {@link WorkspaceConfigurationConstants#CONFIG_KEY_INCLUDE_LIST} or
+   *          {@link WorkspaceConfigurationConstants#CONFIG_KEY_EXCLUDE_LIST}
+   * @return the preference key patterns
+   */
+  public static List<String> getKeyPatterns(String configKey) {
+    return CACHED_LISTS.get(configKey).get();
+  }
+
+  /**
+   * Gets the filter of the preference keys to import made of the key patterns in the preference
+   * store.
+   *
+   * @return the filter of the preference keys to import
+   */
+  public static PreferenceKeyFilter getPreferenceKeyFilter() {
+    return new PreferenceKeyFilter(getKeyPatterns(WorkspaceConfigurationConstants.CONFIG_KEY_INCLUDE_LIST),
+        getKeyPatterns(WorkspaceConfigurationConstants.CONFIG_KEY_EXCLUDE_LIST));
   }
 
   /**
@@ -131,4 +269,73 @@ public final class ConfigurationUtil {
   private static IEclipsePreferences getPreferences() {
     return DefaultScope.INSTANCE.getNode(FrameworkUtil.getBundle(ConfigurationUtil.class).getSymbolicName());
   }
+
+  /**
+   * Immutable snapshot of a list parsed from the configuration, dropped when the preference it is
+   * parsed from changes.
+   */
+  private abstract static class CachedList {
+
+    private final String key;
+    private volatile List<String> value;
+
+    /** Counts the invalidations, guarded by this. */
+    private int version;
+
+    /**
+     * Constructor.
+     *
+     * @param key the configuration key of the list
+     */
+    CachedList(String key) {
+      this.key = key;
+    }
+
+    /**
+     * Gets the list, parses it if there is no snapshot.
+     *
+     * @return the immutable list
+     */
+    List<String> get() {
+      List<String> snapshot = this.value;
+      if (snapshot != null) {
+        return snapshot;
+      }
+      int parsedVersion;
+      synchronized (this) {
+        parsedVersion = this.version;
+      }
+      String xml = Platform.getPreferencesService().getString(bundleSymbolicName, this.key, "", null);
+      try {
+        snapshot = Collections.unmodifiableList(new ArrayList<String>(parse(xml)));
+      } catch (IOException e) {
+        snapshot = Collections.emptyList();
+      }
+      synchronized (this) {
+        // the change event is fired after the value has been written, so if no event has arrived
+        // since the value has been read, the snapshot is up to date
+        if (parsedVersion == this.version) {
+          this.value = snapshot;
+        }
+      }
+      return snapshot;
+    }
+
+    /**
+     * Drops the snapshot.
+     */
+    synchronized void invalidate() {
+      this.version++;
+      this.value = null;
+    }
+
+    /**
+     * Parses the XML representation of the list.
+     *
+     * @param xml the XML
+     * @return the list
+     * @throws IOException on error
+     */
+    abstract List<String> parse(String xml) throws IOException;
+  }
 }
@@ -47,6 +47,22 @@ final class ConfigurationXMLConstants {
 
   /** XML tag for a single environment variable. */
   static final String XML_ENVVAR = "envvar";
+
+
+  /*
+   * The XML representation of the preference key pattern lists:
+   *
+   * <keypatterns>
+   *   <keypattern>org.eclipse.jdt.core/org.eclipse.jdt.core.formatter.</keypattern>
+   *   <keypattern>org.eclipse.ui.editors/</keypattern>
+   * <keypatterns/>
+   */
+
+  /** XML tag for the preference key pattern list. */
+  static final String XML_KEYPATTERNS = "keypatterns";
+
+  /** XML tag for a single preference key pattern. */
+  static final String XML_KEYPATTERN = "keypattern";
   
   
   /**
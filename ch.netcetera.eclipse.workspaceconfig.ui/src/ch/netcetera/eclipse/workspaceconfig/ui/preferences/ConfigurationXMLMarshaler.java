@@ -24,6 +24,8 @@ import static ch.netcetera.eclipse.workspaceconfig.ui.preferences.ConfigurationX
 import static ch.netcetera.eclipse.workspaceconfig.ui.preferences.ConfigurationXMLConstants.XML_ENVVARS;
 import static ch.netcetera.eclipse.workspaceconfig.ui.preferences.ConfigurationXMLConstants.XML_EPFURL;
 import static ch.netcetera.eclipse.workspaceconfig.ui.preferences.ConfigurationXMLConstants.XML_EPFURLS;
+import static ch.netcetera.eclipse.workspaceconfig.ui.preferences.ConfigurationXMLConstants.XML_KEYPATTERN;
+import static ch.netcetera.eclipse.workspaceconfig.ui.preferences.ConfigurationXMLConstants.XML_KEYPATTERNS;
 
 /**
  * Marshaler that converts the values to be stored in the Eclipse preferences into XML.
@@ -63,6 +65,17 @@ public class ConfigurationXMLMarshaler {
   public String marshalEnvVarList(Collection<String> envVarList) throws IOException {
     return marshalList(XML_ENVVARS, XML_ENVVAR, envVarList);
   }
+
+  /**
+   * Marshals a preference key pattern List into XML.
+   * 
+   * @param keyPatternList the preference key patterns to marshal
+   * @return the marshaled XMLs representation
+   * @throws IOException on error
+   */
+  public String marshalKeyPatternList(Collection<String> keyPatternList) throws IOException {
+    return marshalList(XML_KEYPATTERNS, XML_KEYPATTERN, keyPatternList);
+  }
  
   
   private String marshalList(String rootElement, String itemElement, Collection<String> envVarList) throws IOException {
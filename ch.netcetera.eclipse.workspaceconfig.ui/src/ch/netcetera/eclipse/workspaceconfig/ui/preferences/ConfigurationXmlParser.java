@@ -27,6 +27,8 @@ import static ch.netcetera.eclipse.workspaceconfig.ui.preferences.ConfigurationX
 import static ch.netcetera.eclipse.workspaceconfig.ui.preferences.ConfigurationXMLConstants.XML_ENVVARS;
 import static ch.netcetera.eclipse.workspaceconfig.ui.preferences.ConfigurationXMLConstants.XML_EPFURL;
 import static ch.netcetera.eclipse.workspaceconfig.ui.preferences.ConfigurationXMLConstants.XML_EPFURLS;
+import static ch.netcetera.eclipse.workspaceconfig.ui.preferences.ConfigurationXMLConstants.XML_KEYPATTERN;
+import static ch.netcetera.eclipse.workspaceconfig.ui.preferences.ConfigurationXMLConstants.XML_KEYPATTERNS;
 
 /**
  * Parser that parses the XML stored in the Eclipse preferences.
@@ -72,6 +74,17 @@ public class ConfigurationXmlParser {
     return parseList(XML_ENVVARS, XML_ENVVAR, xml);
   }
 
+  /**
+   * Parses the XML representation of a preference key pattern list.
+   *
+   * @param xml the XML to parse
+   * @return the preference key pattern list
+   * @throws IOException on error
+   */
+  public List<String> parseKeyPatternList(String xml) throws IOException {
+    return parseList(XML_KEYPATTERNS, XML_KEYPATTERN, xml);
+  }
+
 
   private List<String> parseList(String rootElement, String listElement, String xml) throws IOException {
     try {
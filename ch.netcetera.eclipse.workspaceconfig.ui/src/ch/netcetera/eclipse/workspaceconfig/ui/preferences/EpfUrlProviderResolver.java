@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.workspaceconfig.ui.preferences;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import ch.netcetera.eclipse.workspaceconfig.ui.preferences.api.IEpfUrlProvider;
+
+/**
+ * Resolves the EPF URLs contributed by {@link IEpfUrlProvider}s and adds them to the default EPF
+ * URLs. Creating the providers activates the bundles contributing them, so this is not done while
+ * the default preferences are initialized but once, in a job scheduled at startup. Callers in the
+ * background that need the complete list resolve the providers themselves if the job has not
+ * done it yet, the UI never does.
+ */
+final class EpfUrlProviderResolver {
+
+  private static final String EPF_URL_PROVIDER = "EpfUrlProvider";
+  private static final String CLASS = "class";
+
+  private static final Object LOCK = new Object();
+
+  private static volatile boolean resolved;
+
+  /** Whether the providers are being resolved, guarded by {@link #LOCK}. */
+  private static boolean resolving;
+
+  /**
+   * Not instantiable.
+   */
+  private EpfUrlProviderResolver() {
+    throw new AssertionError("Not instantiable.");
+  }
+
+  /**
+   * Schedules a system job that resolves the EPF URL providers unless this has been done already.
+   *
+   * @param jobName the human readable job name
+   */
+  static void schedule(String jobName) {
+    if (resolved) {
+      return;
+    }
+    Job job = new Job(jobName) {
+
+      /** {@inheritDoc} */
+      @Override
+      protected IStatus run(IProgressMonitor monitor) {
+        resolve();
+        return Status.OK_STATUS;
+      }
+    };
+    job.setSystem(true);
+    job.schedule();
+  }
+
+  /**
+   * Resolves the EPF URL providers unless this has been done already. Blocks while another thread
+   * resolves them, so this must not be called on the UI thread.
+   */
+  static void resolve() {
+    if (resolved) {
+      return;
+    }
+    synchronized (LOCK) {
+      // a provider asking for the EPF URLs while it is being created gets the URLs known so far
+      if (resolved || resolving) {
+        return;
+      }
+      resolving = true;
+      try {
+        Set<String> urls = new LinkedHashSet<String>();
+        IConfigurationElement[] configElements = Platform.getExtensionRegistry().getConfigurationElementsFor(
+            WorkspaceConfigPreferenceInitializer.EXTENSION_ID);
+        for (IConfigurationElement configElement : configElements) {
+          if (EPF_URL_PROVIDER.equals(configElement.getName())) {
+            String epfUrl = getEpfUrl(configElement);
+            if (epfUrl != null && !epfUrl.isEmpty()) {
+              urls.add(epfUrl);
+            }
+          }
+        }
+        if (!urls.isEmpty()) {
+          ConfigurationUtil.addDefaultEpfUrls(urls);
+        }
+        resolved = true;
+      } finally {
+        resolving = false;
+      }
+    }
+  }
+
+  private static String getEpfUrl(IConfigurationElement configElement) {
+    try {
+      Object executableExtension = configElement.createExecutableExtension(CLASS);
+      if (executableExtension instanceof IEpfUrlProvider) {
+        return ((IEpfUrlProvider) executableExtension).getEpfUrl();
+      }
+    } catch (CoreException e) {
+      // ignore malformed extension points
+    }
+    return null;
+  }
+}
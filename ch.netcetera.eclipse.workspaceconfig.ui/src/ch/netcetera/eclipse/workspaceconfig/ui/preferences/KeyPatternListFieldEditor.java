@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2014 Netcetera AG and others.
+ * All rights reserved.
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * - Netcetera AG: initial implementation
+ */
+package ch.netcetera.eclipse.workspaceconfig.ui.preferences;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jface.dialogs.InputDialog;
+import org.eclipse.jface.window.Window;
+import org.eclipse.swt.widgets.Composite;
+
+import ch.netcetera.eclipse.common.fieldeditor.AbstractEditableStringListFieldEditor;
+import ch.netcetera.eclipse.common.text.ITextAccessor;
+import ch.netcetera.eclipse.common.validator.StringListInputValidator;
+import ch.netcetera.eclipse.workspaceconfig.ui.WorkspaceConfigurationUIPlugin;
+
+/**
+ * A string list field editor for the preference key patterns that allows to edit the items of the
+ * list.
+ */
+public class KeyPatternListFieldEditor extends AbstractEditableStringListFieldEditor {
+
+  private ConfigurationXMLMarshaler marshaler = new ConfigurationXMLMarshaler();
+  private ConfigurationXmlParser parser = new ConfigurationXmlParser();
+
+  /**
+   * Constructor.
+   *
+   * @param name the name of the preference this field editor edits
+   * @param labelText the label text
+   * @param parent the parent {@link Composite}
+   * @param textAccessor the text accessor
+   */
+  protected KeyPatternListFieldEditor(String name, String labelText, Composite parent,
+      ITextAccessor textAccessor) {
+    super(name, labelText, parent, textAccessor);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getNewListItem() {
+    InputDialog dialog = new InputDialog(getAddButtonShell(),
+        WorkspaceConfigurationUIPlugin.getDefault().getText("preference.dialog.keypattern.title"),
+        WorkspaceConfigurationUIPlugin.getDefault().getText("preference.dialog.keypattern.text"), null,
+        new StringListInputValidator(getListItems(), null, getTextAccessor()));
+    if (dialog.open() == Window.OK) {
+      return dialog.getValue();
+    } else {
+      return null;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String editListItem(String item) {
+    InputDialog dialog = new InputDialog(getEditButtonShell(),
+        WorkspaceConfigurationUIPlugin.getDefault().getText("preference.dialog.keypattern.title"),
+        WorkspaceConfigurationUIPlugin.getDefault().getText("preference.dialog.keypattern.text"), item,
+        new StringListInputValidator(getListItems(), item, getTextAccessor()));
+    if (dialog.open() == Window.OK) {
+      return dialog.getValue();
+    } else {
+      return item;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected List<String> parsePreferenceString(String preferenceString) {
+    try {
+      return this.parser.parseKeyPatternList(preferenceString);
+    } catch (IOException e) {
+      return Collections.emptyList();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected String marshallPreferenceString(String[] items) {
+    try {
+      return this.marshaler.marshalKeyPatternList(Arrays.asList(items));
+    } catch (IOException e) {
+      return "";
+    }
+  }
+}
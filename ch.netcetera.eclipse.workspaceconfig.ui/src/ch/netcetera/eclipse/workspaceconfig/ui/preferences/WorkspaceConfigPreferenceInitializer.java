@@ -12,36 +12,35 @@
  */
 package ch.netcetera.eclipse.workspaceconfig.ui.preferences;
 
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.preferences.AbstractPreferenceInitializer;
 
-import ch.netcetera.eclipse.workspaceconfig.ui.preferences.api.IEpfUrlProvider;
-
 /**
- * Initializer for the workspace configuration plug-in's preferences.
+ * Initializer for the workspace configuration plug-in's preferences. The EPF URL providers are not
+ * resolved here but by the {@link EpfUrlProviderResolver}, the first time the EPF URLs are needed.
  */
 public class WorkspaceConfigPreferenceInitializer extends AbstractPreferenceInitializer {
 
-  private static final String EXTENSION_ID = "ch.netcetera.eclipse.workspace.defaultConfiguration";
+  /** The ID of the extension point contributing the default configuration. */
+  static final String EXTENSION_ID = "ch.netcetera.eclipse.workspace.defaultConfiguration";
 
   private static final String EPF_URL = "EpfUrl";
   private static final String URL = "url";
 
-  private static final String EPF_URL_PROVIDER = "EpfUrlProvider";
-  private static final String CLASS = "class";
-
   private static final String NEW_WORKSPACE_DETECTION = "NewWorkspaceDetection";
   private static final String DETECT_NEW_WORKSPACES = "detectNewWorkspaces";
 
   private static final String JAVA_SYSTEM_PROPERTY_REPLACEMENT = "JavaSystemPropertyReplacement";
   private static final String SYSTEM_PROPERTY = "systemProperty";
 
+  private static final String PREFERENCE_KEY_INCLUDE = "PreferenceKeyInclude";
+  private static final String PREFERENCE_KEY_EXCLUDE = "PreferenceKeyExclude";
+  private static final String PATTERN = "pattern";
+
 
   /**
    * {@inheritDoc}
@@ -53,6 +52,8 @@ public class WorkspaceConfigPreferenceInitializer extends AbstractPreferenceInit
 
     Set<String> urls = new HashSet<String>();
     Set<String> replacements = new HashSet<String>();
+    Set<String> keyIncludes = new HashSet<String>();
+    Set<String> keyExcludes = new HashSet<String>();
     boolean newWorkspaceDetection = false;
 
     for (IConfigurationElement configElement : configElements) {
@@ -63,8 +64,6 @@ public class WorkspaceConfigPreferenceInitializer extends AbstractPreferenceInit
         if (url != null && !url.isEmpty()) {
           urls.add(url);
         }
-      } else if (EPF_URL_PROVIDER.equals(elementName)) {
-        urls.addAll(handleEpfUrlProvider(configElement));
       } else if (NEW_WORKSPACE_DETECTION.equals(elementName)) {
         newWorkspaceDetection |= Boolean.parseBoolean(configElement.getAttribute(DETECT_NEW_WORKSPACES));
       } else if (JAVA_SYSTEM_PROPERTY_REPLACEMENT.equals(elementName)) {
@@ -72,28 +71,23 @@ public class WorkspaceConfigPreferenceInitializer extends AbstractPreferenceInit
         if (replacement != null && !replacement.isEmpty()) {
           replacements.add(replacement);
         }
+      } else if (PREFERENCE_KEY_INCLUDE.equals(elementName)) {
+        String pattern = configElement.getAttribute(PATTERN);
+        if (pattern != null && !pattern.isEmpty()) {
+          keyIncludes.add(pattern);
+        }
+      } else if (PREFERENCE_KEY_EXCLUDE.equals(elementName)) {
+        String pattern = configElement.getAttribute(PATTERN);
+        if (pattern != null && !pattern.isEmpty()) {
+          keyExcludes.add(pattern);
+        }
       }
     }
 
     ConfigurationUtil.saveEpfUrls(urls);
     ConfigurationUtil.saveEnvReplacements(replacements);
+    ConfigurationUtil.saveKeyPatterns(WorkspaceConfigurationConstants.CONFIG_KEY_INCLUDE_LIST, keyIncludes);
+    ConfigurationUtil.saveKeyPatterns(WorkspaceConfigurationConstants.CONFIG_KEY_EXCLUDE_LIST, keyExcludes);
     ConfigurationUtil.saveNewWorkspaceDetection(newWorkspaceDetection);
   }
-
-  private Collection<? extends String> handleEpfUrlProvider(IConfigurationElement configElement) {
-    Set<String> urls = new HashSet<String>();
-    try {
-      Object executableExtension = configElement.createExecutableExtension(CLASS);
-      if (executableExtension instanceof IEpfUrlProvider) {
-        IEpfUrlProvider urlProvider = (IEpfUrlProvider) executableExtension;
-        String epfUrl = urlProvider.getEpfUrl();
-        if (epfUrl != null && !epfUrl.isEmpty()) {
-          urls.add(epfUrl);
-        }
-      }
-    } catch (CoreException e) {
-      // ignore malformed extension points
-    }
-    return urls;
-  }
 }
\ No newline at end of file
@@ -44,6 +44,14 @@ public class WorkspaceConfigPreferencePage extends FieldEditorPreferencePage imp
         WorkspaceConfigurationUIPlugin.getDefault().getText("preference.page.envreplace.list"),
         getFieldEditorParent(), WorkspaceConfigurationUIPlugin.getDefault()));
     
+    addField(new KeyPatternListFieldEditor(WorkspaceConfigurationConstants.CONFIG_KEY_INCLUDE_LIST,
+        WorkspaceConfigurationUIPlugin.getDefault().getText("preference.page.keyinclude.list"),
+        getFieldEditorParent(), WorkspaceConfigurationUIPlugin.getDefault()));
+
+    addField(new KeyPatternListFieldEditor(WorkspaceConfigurationConstants.CONFIG_KEY_EXCLUDE_LIST,
+        WorkspaceConfigurationUIPlugin.getDefault().getText("preference.page.keyexclude.list"),
+        getFieldEditorParent(), WorkspaceConfigurationUIPlugin.getDefault()));
+
     addField(new BooleanFieldEditor(WorkspaceConfigurationConstants.CONFIG_STARTUP_CHECK,
         WorkspaceConfigurationUIPlugin.getDefault().getText("preference.page.check.label"),
         getFieldEditorParent()));
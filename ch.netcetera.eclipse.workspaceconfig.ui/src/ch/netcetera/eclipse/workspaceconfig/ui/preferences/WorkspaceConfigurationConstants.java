@@ -26,6 +26,12 @@ public final class WorkspaceConfigurationConstants {
    */
   public static final String CONFIG_ENV_REPLACEMENT_LIST = "ENV_REPLACEMENT_LIST_V3";
 
+  /** The configuration key of the list of preference key patterns to import. */
+  public static final String CONFIG_KEY_INCLUDE_LIST = "KEY_INCLUDE_LIST_V3";
+
+  /** The configuration key of the list of preference key patterns not to import. */
+  public static final String CONFIG_KEY_EXCLUDE_LIST = "KEY_EXCLUDE_LIST_V3";
+
   /** The configuration key for the remote configuration file URL. */
   public static final String CONFIG_URL = "URL_V3";
   